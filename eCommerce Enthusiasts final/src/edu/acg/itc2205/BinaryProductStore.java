@@ -0,0 +1,200 @@
+package edu.acg.itc2205;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The BinaryProductStore class stores products in a fixed-layout binary file that is
+ * read through a memory mapping, so products can be looked up without loading the whole file.
+ * <p>
+ * The file contains a header (magic number and product count), one fixed-size record per
+ * product in insertion order, an index of (product ID, record number) pairs sorted by ID,
+ * and finally the product names as UTF-8 bytes. Prices are stored as a whole number of cents.
+ * Files are limited to 2 GB by the mapping.
+ */
+public class BinaryProductStore implements ProductStore {
+    private static final int MAGIC = 0x50524432;  // "PRD2"; files with double prices used "PROD"
+    private static final int HEADER_SIZE = 8;  // Magic number, product count
+    private static final int RECORD_SIZE = 24;  // ID, quantity, price, name offset, name length
+    private static final int INDEX_ENTRY_SIZE = 8;  // Product ID, record number
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int indexStart;
+    private final int namesStart;
+
+    private BinaryProductStore(MappedByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary product file.");
+        }
+        this.buffer = buffer;
+        this.count = buffer.getInt(4);
+        this.indexStart = HEADER_SIZE + count * RECORD_SIZE;
+        this.namesStart = indexStart + count * INDEX_ENTRY_SIZE;
+    }
+
+    /**
+     * Opens a binary product file. Quantities and prices can be updated in place.
+     *
+     * @param fileName The name of the binary product file.
+     * @return The opened store.
+     * @throws IOException If the file cannot be opened or is not a binary product file.
+     */
+    public static BinaryProductStore open(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new BinaryProductStore(channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the given products to a binary product file, replacing it if it exists.
+     * The file is written to a temporary file first and then moved into place.
+     *
+     * @param products The products to write, in the order they should be listed.
+     * @param fileName The name of the binary product file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Collection<Product> products, String fileName) throws IOException {
+        int count = products.size();
+        byte[][] names = new byte[count][];
+        long[] index = new long[count];  // Product ID in the high half, record number in the low half
+
+        int i = 0;
+        for (Product product : products) {
+            names[i] = product.getProductName().getBytes(StandardCharsets.UTF_8);
+            index[i] = ((long) product.getProductId() << 32) | i;
+            i++;
+        }
+        Arrays.sort(index);
+
+        File tempFile = new File(fileName + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile);
+             DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+            data.writeInt(MAGIC);
+            data.writeInt(count);
+
+            i = 0;
+            int nameOffset = 0;
+            for (Product product : products) {
+                data.writeInt(product.getProductId());
+                data.writeInt(product.getQuantity());
+                data.writeLong(product.getPriceCents());
+                data.writeInt(nameOffset);
+                data.writeInt(names[i].length);
+                nameOffset += names[i].length;
+                i++;
+            }
+            for (long entry : index) {
+                data.writeInt((int) (entry >> 32));
+                data.writeInt((int) entry);
+            }
+            for (byte[] name : names) {
+                data.write(name);
+            }
+            data.flush();
+            out.getFD().sync();
+        }
+
+        Files.move(tempFile.toPath(), Paths.get(fileName),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int productIdAt(int recordNumber) {
+        return buffer.getInt(HEADER_SIZE + recordNumber * RECORD_SIZE);
+    }
+
+    @Override
+    public String productNameAt(int recordNumber) {
+        int position = HEADER_SIZE + recordNumber * RECORD_SIZE;
+        byte[] name = new byte[buffer.getInt(position + 20)];
+        buffer.get(namesStart + buffer.getInt(position + 16), name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean contains(int productId) {
+        return findRecord(productId) >= 0;
+    }
+
+    @Override
+    public Product productAt(int recordNumber) {
+        int position = HEADER_SIZE + recordNumber * RECORD_SIZE;
+        return Product.withPriceCents(buffer.getInt(position), productNameAt(recordNumber),
+                buffer.getInt(position + 4), buffer.getLong(position + 8));
+    }
+
+    @Override
+    public Product read(int productId) {
+        int record = findRecord(productId);
+        return record < 0 ? null : productAt(record);
+    }
+
+    /**
+     * Writes the quantity and price of a product into its record in place.
+     * Products that are not stored, or whose name has changed, cannot be updated in place.
+     *
+     * @param product The product to update.
+     * @return True if the record was updated, false if the file has to be rewritten instead.
+     */
+    public boolean update(Product product) {
+        int record = findRecord(product.getProductId());
+        if (record < 0) {
+            return false;
+        }
+
+        int position = HEADER_SIZE + record * RECORD_SIZE;
+        byte[] name = new byte[buffer.getInt(position + 20)];
+        buffer.get(namesStart + buffer.getInt(position + 16), name);
+        if (!product.getProductName().equals(new String(name, StandardCharsets.UTF_8))) {
+            return false;
+        }
+
+        buffer.putInt(position + 4, product.getQuantity());
+        buffer.putLong(position + 8, product.getPriceCents());
+        return true;
+    }
+
+    /**
+     * Forces the changes made by {@link #update(Product)} to be written to disk.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Finds the record number of a product by binary search over the sorted ID index.
+     *
+     * @param productId The ID of the product.
+     * @return The record number, or -1 if not found.
+     */
+    private int findRecord(int productId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = buffer.getInt(indexStart + mid * INDEX_ENTRY_SIZE);
+            if (midId < productId) {
+                low = mid + 1;
+            } else if (midId > productId) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(indexStart + mid * INDEX_ENTRY_SIZE + 4);
+            }
+        }
+        return -1;
+    }
+}
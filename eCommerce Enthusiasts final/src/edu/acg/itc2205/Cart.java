@@ -0,0 +1,125 @@
+package edu.acg.itc2205;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The Cart class represents a customer's shopping cart. It holds one line per product,
+ * merging repeated additions of the same product, and keeps a running subtotal.
+ */
+public class Cart {
+    private final Map<Integer, Product> lines;  // Cart lines indexed by product ID, in the order they were added
+    private long subtotalCents;  // The total cost of all lines, in cents
+
+    /**
+     * Constructs an empty Cart.
+     */
+    public Cart() {
+        this.lines = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds a quantity of a product to the cart. If the product is already in the cart,
+     * the quantity is added to its existing line.
+     *
+     * @param product  The product to add.
+     * @param quantity The quantity to add.
+     * @return The cart line for the product.
+     * @throws ArithmeticException If the subtotal overflows.
+     */
+    public Product add(Product product, int quantity) {
+        Product line = lines.get(product.getProductId());
+        long priceCents = line == null ? product.getPriceCents() : line.getPriceCents();
+        long newSubtotalCents = Money.add(subtotalCents, Money.multiply(priceCents, quantity));  // Checked before changing the cart
+        if (line == null) {
+            line = Product.withPriceCents(product.getProductId(), product.getProductName(), quantity, priceCents);
+            lines.put(product.getProductId(), line);
+        } else {
+            line.setQuantity(Math.addExact(line.getQuantity(), quantity));
+        }
+        subtotalCents = newSubtotalCents;
+        return line;
+    }
+
+    /**
+     * Changes the quantity of a product already in the cart.
+     *
+     * @param productId The ID of the product.
+     * @param quantity  The new quantity; zero removes the line.
+     * @return True if the product is in the cart and the quantity is valid, false otherwise.
+     */
+    public boolean setQuantity(int productId, int quantity) {
+        Product line = lines.get(productId);
+        if (line == null || quantity < 0) {
+            return false;
+        }
+        if (quantity == 0) {
+            remove(productId);
+            return true;
+        }
+        subtotalCents = Money.add(subtotalCents, Money.multiply(line.getPriceCents(), quantity - line.getQuantity()));
+        line.setQuantity(quantity);
+        return true;
+    }
+
+    /**
+     * Removes a product's line from the cart.
+     *
+     * @param productId The ID of the product.
+     * @return The removed line, or null if the product is not in the cart.
+     */
+    public Product remove(int productId) {
+        Product line = lines.remove(productId);
+        if (line != null) {
+            subtotalCents -= line.totalCostCents();
+        }
+        return line;
+    }
+
+    /**
+     * Retrieves the cart line for a product.
+     *
+     * @param productId The ID of the product.
+     * @return The cart line, or null if the product is not in the cart.
+     */
+    public Product get(int productId) {
+        return lines.get(productId);
+    }
+
+    /**
+     * Retrieves all cart lines, in the order they were added.
+     *
+     * @return The cart lines.
+     */
+    public Collection<Product> getLines() {
+        return Collections.unmodifiableCollection(lines.values());
+    }
+
+    /**
+     * Retrieves the total cost of all lines in the cart.
+     *
+     * @return The cart subtotal, in cents.
+     */
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    /**
+     * Checks whether the cart is empty.
+     *
+     * @return True if the cart has no lines, false otherwise.
+     */
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    /**
+     * Removes all lines from the cart.
+     */
+    public void clear() {
+        lines.clear();
+        subtotalCents = 0;
+    }
+}
@@ -0,0 +1,204 @@
+package edu.acg.itc2205;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The ColumnarProductStore class keeps a catalog in parallel primitive arrays instead of
+ * one Product object per product: IDs, quantities and prices in cents each in their own array, and
+ * all names as UTF-8 bytes in one shared array. A product costs about 28 bytes plus its
+ * name, against well over 100 bytes for a Product with its String and index entries, and
+ * the garbage collector has a handful of arrays to trace instead of millions of objects.
+ * <p>
+ * The store is read-only. Products are looked up by binary search over an index sorted by
+ * ID, and are read into Product objects on demand by the InventorySystem, which keeps
+ * accessed and changed products in memory.
+ */
+public class ColumnarProductStore implements ProductStore {
+    private final int count;
+    private final int[] productIds;
+    private final int[] quantities;
+    private final long[] priceCents;
+    private final int[] nameOffsets;  // Start of each name in names; one extra entry marks the end of the last
+    private final byte[] names;
+    private final long[] index;  // Product ID in the high half, record number in the low half, sorted
+
+    private ColumnarProductStore(int count, int[] productIds, int[] quantities, long[] priceCents,
+                                 int[] nameOffsets, byte[] names, long[] index) {
+        this.count = count;
+        this.productIds = productIds;
+        this.quantities = quantities;
+        this.priceCents = priceCents;
+        this.nameOffsets = nameOffsets;
+        this.names = names;
+        this.index = index;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int productIdAt(int recordNumber) {
+        return productIds[recordNumber];
+    }
+
+    @Override
+    public String productNameAt(int recordNumber) {
+        int start = nameOffsets[recordNumber];
+        return new String(names, start, nameOffsets[recordNumber + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Product productAt(int recordNumber) {
+        return Product.withPriceCents(productIds[recordNumber], productNameAt(recordNumber),
+                quantities[recordNumber], priceCents[recordNumber]);
+    }
+
+    @Override
+    public boolean contains(int productId) {
+        return findRecord(productId) >= 0;
+    }
+
+    @Override
+    public Product read(int productId) {
+        int record = findRecord(productId);
+        return record < 0 ? null : productAt(record);
+    }
+
+    /**
+     * Finds the record number of a product by binary search over the sorted ID index.
+     *
+     * @param productId The ID of the product.
+     * @return The record number, or -1 if not found.
+     */
+    private int findRecord(int productId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = (int) (index[mid] >> 32);
+            if (midId < productId) {
+                low = mid + 1;
+            } else if (midId > productId) {
+                high = mid - 1;
+            } else {
+                return (int) index[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The Builder class collects products for a ColumnarProductStore, growing its arrays
+     * as products are added. Builders filled in parallel can be joined in order.
+     */
+    public static class Builder {
+        private int count;
+        private int[] productIds = new int[1024];
+        private int[] quantities = new int[1024];
+        private long[] priceCents = new long[1024];
+        private int[] nameOffsets = new int[1025];
+        private byte[] names = new byte[16 * 1024];
+
+        /**
+         * Adds a product.
+         *
+         * @param productId   The ID of the product.
+         * @param productName The name of the product.
+         * @param quantity    The available quantity.
+         * @param priceCents  The price, in cents.
+         */
+        public void add(int productId, String productName, int quantity, long priceCents) {
+            byte[] name = productName.getBytes(StandardCharsets.UTF_8);
+            ensureCapacity(count + 1, nameOffsets[count] + name.length);
+            productIds[count] = productId;
+            quantities[count] = quantity;
+            this.priceCents[count] = priceCents;
+            System.arraycopy(name, 0, names, nameOffsets[count], name.length);
+            nameOffsets[count + 1] = nameOffsets[count] + name.length;
+            count++;
+        }
+
+        /**
+         * Adds all products of another builder after the products of this one.
+         *
+         * @param other The builder whose products are added.
+         */
+        public void append(Builder other) {
+            int nameLength = other.nameOffsets[other.count];
+            ensureCapacity(count + other.count, nameOffsets[count] + nameLength);
+            System.arraycopy(other.productIds, 0, productIds, count, other.count);
+            System.arraycopy(other.quantities, 0, quantities, count, other.count);
+            System.arraycopy(other.priceCents, 0, priceCents, count, other.count);
+            System.arraycopy(other.names, 0, names, nameOffsets[count], nameLength);
+            for (int i = 1; i <= other.count; i++) {
+                nameOffsets[count + i] = nameOffsets[count] + other.nameOffsets[i];
+            }
+            count += other.count;
+        }
+
+        /**
+         * Creates the store. If several products have the same ID, the first one added is kept.
+         *
+         * @return The store.
+         */
+        public ColumnarProductStore build() {
+            long[] index = new long[count];
+            for (int i = 0; i < count; i++) {
+                index[i] = ((long) productIds[i] << 32) | i;
+            }
+            Arrays.sort(index);
+
+            // Drop every record whose ID also belongs to an earlier record
+            boolean[] duplicate = new boolean[count];
+            int duplicates = 0;
+            for (int i = 1; i < count; i++) {
+                if ((int) (index[i] >> 32) == (int) (index[i - 1] >> 32)) {
+                    duplicate[(int) index[i]] = true;
+                    duplicates++;
+                }
+            }
+            if (duplicates > 0) {
+                return withoutRecords(duplicate, count - duplicates).build();
+            }
+
+            int nameLength = nameOffsets[count];
+            return new ColumnarProductStore(count, Arrays.copyOf(productIds, count), Arrays.copyOf(quantities, count),
+                    Arrays.copyOf(priceCents, count), Arrays.copyOf(nameOffsets, count + 1),
+                    Arrays.copyOf(names, nameLength), index);
+        }
+
+        private Builder withoutRecords(boolean[] dropped, int remaining) {
+            Builder kept = new Builder();
+            kept.ensureCapacity(remaining, nameOffsets[count]);
+            for (int i = 0; i < count; i++) {
+                if (!dropped[i]) {
+                    int nameLength = nameOffsets[i + 1] - nameOffsets[i];
+                    int k = kept.count;
+                    kept.productIds[k] = productIds[i];
+                    kept.quantities[k] = quantities[i];
+                    kept.priceCents[k] = priceCents[i];
+                    System.arraycopy(names, nameOffsets[i], kept.names, kept.nameOffsets[k], nameLength);
+                    kept.nameOffsets[k + 1] = kept.nameOffsets[k] + nameLength;
+                    kept.count++;
+                }
+            }
+            return kept;
+        }
+
+        private void ensureCapacity(int records, int nameBytes) {
+            if (records > productIds.length) {
+                int capacity = Math.max(records, productIds.length * 2);
+                productIds = Arrays.copyOf(productIds, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                priceCents = Arrays.copyOf(priceCents, capacity);
+                nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+            }
+            if (nameBytes > names.length) {
+                names = Arrays.copyOf(names, Math.max(nameBytes, names.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package edu.acg.itc2205;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The CsvTokenizer class reads comma-separated rows and parses their fields in place.
+ * Rows are read into a reusable character buffer, and numbers are parsed directly from
+ * that buffer, so only text fields allocate. Whitespace around fields is skipped
+ * without creating trimmed copies.
+ * <p>
+ * Malformed fields are reported with an IllegalArgumentException naming the field, so a
+ * loader can report the row with {@link #getLineNumber()}, skip it and carry on.
+ */
+public class CsvTokenizer {
+    private final Reader reader;  // The source of rows, or null when rows are given with reset(String)
+    private final char[] buffer;  // Characters read from the reader but not yet consumed
+    private int bufferPosition;
+    private int bufferLimit;
+
+    private char[] row = new char[128];  // The current row, without the line terminator
+    private int rowLength;
+    private int position;  // The position of the next field in the row
+    private int fieldNumber;  // The number of fields read from the current row
+    private int lineNumber;
+
+    /**
+     * Constructs a CsvTokenizer that reads rows from the given reader.
+     *
+     * @param reader The reader to read rows from.
+     */
+    public CsvTokenizer(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[8192];
+    }
+
+    /**
+     * Constructs a CsvTokenizer for parsing single rows given with {@link #reset(String)}.
+     */
+    public CsvTokenizer() {
+        this.reader = null;
+        this.buffer = null;
+    }
+
+    /**
+     * Advances to the next row of the reader.
+     *
+     * @return True if a row was read, false at the end of the input.
+     * @throws IOException If reading fails.
+     */
+    public boolean nextRow() throws IOException {
+        rowLength = 0;
+        position = 0;
+        fieldNumber = 0;
+        boolean readAny = false;
+
+        while (true) {
+            if (bufferPosition == bufferLimit) {
+                bufferLimit = reader.read(buffer, 0, buffer.length);
+                bufferPosition = 0;
+                if (bufferLimit <= 0) {
+                    bufferLimit = 0;
+                    if (readAny) {
+                        lineNumber++;
+                    }
+                    return readAny;
+                }
+            }
+            readAny = true;
+
+            char c = buffer[bufferPosition++];
+            if (c == '\n') {
+                if (rowLength > 0 && row[rowLength - 1] == '\r') {
+                    rowLength--;
+                }
+                lineNumber++;
+                return true;
+            }
+            if (rowLength == row.length) {
+                char[] larger = new char[row.length * 2];
+                System.arraycopy(row, 0, larger, 0, rowLength);
+                row = larger;
+            }
+            row[rowLength++] = c;
+        }
+    }
+
+    /**
+     * Makes the given text the current row.
+     *
+     * @param text The row to parse.
+     */
+    public void reset(String text) {
+        if (text.length() > row.length) {
+            row = new char[text.length()];
+        }
+        text.getChars(0, text.length(), row, 0);
+        rowLength = text.length();
+        position = 0;
+        fieldNumber = 0;
+        lineNumber++;
+    }
+
+    /**
+     * Retrieves the line number of the current row, starting from 1.
+     *
+     * @return The line number.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Checks whether the current row contains only whitespace.
+     *
+     * @return True if the row is blank, false otherwise.
+     */
+    public boolean isBlankRow() {
+        for (int i = 0; i < rowLength; i++) {
+            if (!Character.isWhitespace(row[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the current row is a comment, which starts with '#'.
+     *
+     * @return True if the row is a comment, false otherwise.
+     */
+    public boolean isCommentRow() {
+        return rowLength > 0 && row[0] == '#';
+    }
+
+    /**
+     * Counts the fields in the current row.
+     *
+     * @return The number of comma-separated fields.
+     */
+    public int countFields() {
+        int count = 1;
+        for (int i = 0; i < rowLength; i++) {
+            if (row[i] == ',') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads the next field as an int.
+     *
+     * @return The parsed value.
+     * @throws IllegalArgumentException If the field is missing or not a valid int.
+     */
+    public int nextInt() {
+        int end = startField();
+        int start = skipLeadingWhitespace(end);
+        int last = skipTrailingWhitespace(start, end);
+
+        boolean negative = start < last && row[start] == '-';
+        int i = (negative || (start < last && row[start] == '+')) ? start + 1 : start;
+        if (i == last) {
+            throw malformed("expected a whole number");
+        }
+
+        long value = 0;
+        for (; i < last; i++) {
+            int digit = row[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw malformed("expected a whole number");
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw malformed("number out of range");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw malformed("number out of range");
+        }
+
+        endField(end);
+        return (int) value;
+    }
+
+    /**
+     * Reads the next field as an amount of money in cents. Amounts with up to two decimal
+     * places are parsed in place; anything else is handed to {@link Money#parse(String)}.
+     *
+     * @return The amount in cents.
+     * @throws IllegalArgumentException If the field is missing or not a valid amount.
+     */
+    public long nextCents() {
+        int end = startField();
+        int start = skipLeadingWhitespace(end);
+        int last = skipTrailingWhitespace(start, end);
+
+        boolean negative = start < last && row[start] == '-';
+        int i = (negative || (start < last && row[start] == '+')) ? start + 1 : start;
+        long cents = 0;
+        int digits = 0;
+        int decimals = -1;  // Digits seen after the point, or -1 before it
+        boolean simple = i < last;
+
+        for (; i < last && simple; i++) {
+            char c = row[i];
+            if (c >= '0' && c <= '9' && decimals < 2) {
+                cents = cents * 10 + (c - '0');
+                digits++;
+                decimals = decimals >= 0 ? decimals + 1 : -1;
+                simple = cents < Long.MAX_VALUE / 1000;
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                simple = false;
+            }
+        }
+
+        long value;
+        if (simple && digits > 0) {
+            for (int d = Math.max(decimals, 0); d < 2; d++) {
+                cents *= 10;
+            }
+            value = negative ? -cents : cents;
+        } else {
+            try {
+                value = Money.parse(new String(row, start, last - start));
+            } catch (NumberFormatException e) {
+                throw malformed("expected an amount");
+            }
+        }
+
+        endField(end);
+        return value;
+    }
+
+    /**
+     * Reads the next field as a string, without surrounding whitespace.
+     *
+     * @return The field's text.
+     * @throws IllegalArgumentException If the field is missing.
+     */
+    public String nextString() {
+        int end = startField();
+        int start = skipLeadingWhitespace(end);
+        int last = skipTrailingWhitespace(start, end);
+        endField(end);
+        return new String(row, start, last - start);
+    }
+
+    /**
+     * Reads the next field as a string, keeping any surrounding whitespace.
+     *
+     * @return The field's text.
+     * @throws IllegalArgumentException If the field is missing.
+     */
+    public String nextRawString() {
+        int end = startField();
+        int start = position;
+        endField(end);
+        return new String(row, start, end - start);
+    }
+
+    /**
+     * Finds the end of the next field.
+     *
+     * @return The position of the comma ending the field, or the row length for the last field.
+     */
+    private int startField() {
+        if (position > rowLength) {
+            throw malformed("missing field");
+        }
+        fieldNumber++;
+        int end = position;
+        while (end < rowLength && row[end] != ',') {
+            end++;
+        }
+        return end;
+    }
+
+    private void endField(int end) {
+        position = end + 1;
+    }
+
+    private int skipLeadingWhitespace(int end) {
+        int start = position;
+        while (start < end && Character.isWhitespace(row[start])) {
+            start++;
+        }
+        return start;
+    }
+
+    private int skipTrailingWhitespace(int start, int end) {
+        while (end > start && Character.isWhitespace(row[end - 1])) {
+            end--;
+        }
+        return end;
+    }
+
+    private IllegalArgumentException malformed(String problem) {
+        return new IllegalArgumentException("Field " + fieldNumber + ": " + problem);
+    }
+}
@@ -1,17 +1,25 @@
 package edu.acg.itc2205;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
  * The Customer class represents a customer user with functionality
  * to view products, add to the cart, view the cart, remove from the cart,
- * and update their profile information.
+ * check out, and update their profile information.
+ * The cart operations return their result as a message, so the same operations
+ * serve both the console menu and the SessionServer.
  */
 public class Customer {
+    private static final int PRODUCT_PAGE_SIZE = 20;  // Products shown per page when browsing
+
     private User user; // The customer user
-    private List<Product> cart; // The customer's shopping cart
+    private Cart cart; // The customer's shopping cart
+    private Map<Integer, List<Reservation>> reservations; // Stock held for each cart line, by product ID
     private InventorySystem inventorySystem; // The inventory system containing available products
 
     /**
@@ -22,7 +30,8 @@ public class Customer {
      */
     public Customer(User user, InventorySystem inventorySystem) {
         this.user = user;
-        this.cart = new ArrayList<>();
+        this.cart = new Cart();
+        this.reservations = new HashMap<>();
         this.inventorySystem = inventorySystem;
     }
 
@@ -36,46 +45,108 @@ public class Customer {
         while (true) {
             System.out.println("\n----- Customer Menu -----");
             System.out.println("1. View Products");
-            System.out.println("2. Add to Cart");
-            System.out.println("3. View Cart");
-            System.out.println("4. Remove from Cart");
-            System.out.println("5. Update Profile");
-            System.out.println("6. Logout");
-            System.out.print("Enter your choice (1-6): ");
+            System.out.println("2. Search Products");
+            System.out.println("3. Add to Cart");
+            System.out.println("4. View Cart");
+            System.out.println("5. Remove from Cart");
+            System.out.println("6. Update Profile");
+            System.out.println("7. Checkout");
+            System.out.println("8. Logout");
+            System.out.print("Enter your choice (1-8): ");
 
             int choice = scanner.nextInt();
             scanner.nextLine();  // Consume the newline character
 
             switch (choice) {
                 case 1:
-                    viewProducts();
+                    viewProducts(scanner);
                     break;
                 case 2:
-                    addToCart(scanner);
+                    searchProducts(scanner);
                     break;
                 case 3:
-                    viewCart();
+                    addToCart(scanner);
                     break;
                 case 4:
-                    removeFromCart(scanner);
+                    System.out.println("\n----- Your Cart -----");
+                    System.out.print(getCartContents());
                     break;
                 case 5:
-                    updateProfile(scanner);
+                    removeFromCart(scanner);
                     break;
                 case 6:
+                    updateProfile(scanner);
+                    break;
+                case 7:
+                    System.out.println(checkout());
+                    break;
+                case 8:
                     System.out.println("Logging out...");
+                    logout();
                     return;
                 default:
-                    System.out.println("Invalid choice. Please enter a number between 1 and 6.");
+                    System.out.println("Invalid choice. Please enter a number between 1 and 8.");
+            }
+        }
+    }
+
+    /**
+     * Displays the available products in the inventory system one page at a time,
+     * so browsing does not render the whole catalog.
+     *
+     * @param scanner The scanner for user input.
+     */
+    private void viewProducts(Scanner scanner) {
+        int page = 1;
+        while (inventorySystem.displayProductPage(System.out, page, PRODUCT_PAGE_SIZE)) {
+            System.out.print("Enter 'n' for the next page or press Enter to return: ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("n")) {
+                return;
+            }
+            page++;
+        }
+    }
+
+    /**
+     * Searches the products by name and displays the best matches one page at a time.
+     *
+     * @param scanner The scanner for user input.
+     */
+    private void searchProducts(Scanner scanner) {
+        System.out.print("Enter product name to search for: ");
+        String query = scanner.nextLine();
+
+        for (int page = 1; ; page++) {
+            System.out.print(searchProducts(query, page));
+            if (inventorySystem.searchProducts(query, page * PRODUCT_PAGE_SIZE, 1).isEmpty()) {
+                return;
+            }
+            System.out.print("Enter 'n' for the next page or press Enter to return: ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("n")) {
+                return;
             }
         }
     }
 
     /**
-     * Displays the available products in the inventory system.
+     * Searches the products by name.
+     *
+     * @param query The words to search for.
+     * @param page  The page of results, starting from 1.
+     * @return The matching products on the page, best match first.
      */
-    private void viewProducts() {
-        inventorySystem.displayProducts();
+    public String searchProducts(String query, int page) {
+        int offset = (int) Math.min(Integer.MAX_VALUE, (Math.max(1, page) - 1L) * PRODUCT_PAGE_SIZE);
+        List<Product> results = inventorySystem.searchProducts(query, offset, PRODUCT_PAGE_SIZE);
+        if (results.isEmpty()) {
+            return "No products found." + System.lineSeparator();
+        }
+
+        StringBuilder contents = new StringBuilder();
+        for (Product product : results) {
+            product.appendTo(contents).append(System.lineSeparator());
+        }
+        return contents.toString();
     }
 
     /**
@@ -96,8 +167,7 @@ public class Customer {
         int productId = scanner.nextInt();
         scanner.nextLine();  // Consume the newline character
 
-        Product product = inventorySystem.getProductById(productId);
-        if (product != null) {
+        if (inventorySystem.getProductById(productId) != null) {
             System.out.print("Enter quantity: ");
 
             // Validate if the input is an integer
@@ -110,28 +180,59 @@ public class Customer {
             int quantity = scanner.nextInt();
             scanner.nextLine();  // Consume the newline character
 
-            if (quantity > 0 && quantity <= product.getQuantity()) {
-                Product cartProduct = new Product(product.getProductId(), product.getProductName(), quantity, product.getPrice());
-                cart.add(cartProduct);
-                System.out.println("Product added to cart: " + cartProduct);
-                // Update the inventory system to subtract the quantity from the available stock
-                inventorySystem.subtractQuantity(productId, quantity);
-            } else {
-                System.out.println("Invalid quantity. Please enter a valid quantity.");
-            }
+            System.out.println(addToCart(productId, quantity));
         } else {
             System.out.println("Product not found. Please enter a valid product ID.");
         }
     }
 
     /**
-     * Displays the contents of the customer's shopping cart.
+     * Adds a quantity of a product to the customer's shopping cart, holding the stock
+     * in the inventory for a limited time.
+     *
+     * @param productId The ID of the product.
+     * @param quantity  The quantity to add.
+     * @return A message describing the result.
      */
-    private void viewCart() {
-        System.out.println("\n----- Your Cart -----");
-        for (Product product : cart) {
-            System.out.println(product);
+    public String addToCart(int productId, int quantity) {
+        Product product = inventorySystem.getProductById(productId);
+        if (product == null) {
+            return "Product not found. Please enter a valid product ID.";
+        }
+
+        // Atomically hold the quantity for a limited time before adding it to the cart
+        Reservation reservation = quantity > 0
+                ? inventorySystem.getReservationScheduler().reserve(productId, quantity) : null;
+        if (reservation == null) {
+            return "Invalid quantity. Please enter a valid quantity.";
         }
+        Product cartProduct;
+        try {
+            cartProduct = cart.add(product, quantity);
+        } catch (ArithmeticException e) {
+            inventorySystem.getReservationScheduler().release(reservation);
+            return "Invalid quantity. The cart total would be too large.";
+        }
+        reservations.computeIfAbsent(productId, id -> new ArrayList<>()).add(reservation);
+        return "Product added to cart: " + cartProduct;
+    }
+
+    /**
+     * Lists the contents of the customer's shopping cart.
+     *
+     * @return One line per cart line, followed by the subtotal.
+     */
+    public String getCartContents() {
+        StringBuilder contents = new StringBuilder();
+        for (Product product : cart.getLines()) {
+            contents.append(product);
+            if (hasExpiredReservation(product.getProductId())) {
+                contents.append(" (reservation expired)");
+            }
+            contents.append(System.lineSeparator());
+        }
+        contents.append("Subtotal: ").append(Money.format(cart.getSubtotalCents())).append(System.lineSeparator());
+        return contents.toString();
     }
 
     /**
@@ -152,22 +253,107 @@ public class Customer {
         int productId = scanner.nextInt();
         scanner.nextLine();  // Consume the newline character
 
-        Product cartProduct = null;
-        for (Product product : cart) {
-            if (product.getProductId() == productId) {
-                cartProduct = product;
-                break;
+        System.out.println(removeFromCart(productId));
+    }
+
+    /**
+     * Removes a product from the customer's shopping cart and returns its held stock.
+     *
+     * @param productId The ID of the product.
+     * @return A message describing the result.
+     */
+    public String removeFromCart(int productId) {
+        Product cartProduct = cart.remove(productId);
+        if (cartProduct == null) {
+            return "Product not found in cart. Please enter a valid product ID.";
+        }
+        // Return the held quantity to the available stock, unless the hold has already expired
+        releaseReservations(productId);
+        return "Product removed from cart: " + cartProduct;
+    }
+
+    /**
+     * Places an order for everything in the cart. Stock still held by the cart's reservations
+     * is kept; stock whose hold expired is taken again as part of the same all-or-nothing checkout.
+     *
+     * @return A message describing the result.
+     */
+    public String checkout() {
+        if (cart.isEmpty()) {
+            return "Your cart is empty.";
+        }
+
+        ReservationScheduler scheduler = inventorySystem.getReservationScheduler();
+        Map<Integer, Integer> heldQuantities = new HashMap<>();
+        Map<Integer, List<Reservation>> expiredReservations = new HashMap<>();
+        for (List<Reservation> held : reservations.values()) {
+            for (Reservation reservation : held) {
+                if (scheduler.commit(reservation)) {
+                    heldQuantities.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+                } else if (reservation.isExpired()) {
+                    expiredReservations.computeIfAbsent(reservation.getProductId(), id -> new ArrayList<>()).add(reservation);
+                }
             }
         }
+        reservations.clear();
 
-        if (cartProduct != null) {
-            cart.remove(cartProduct);
-            System.out.println("Product removed from cart: " + cartProduct);
-            // Update the inventory system to add the quantity back to the available stock
-            inventorySystem.updateProductQuantity(productId, cartProduct.getQuantity() + inventorySystem.getProductById(productId).getQuantity());
-        } else {
-            System.out.println("Product not found in cart. Please enter a valid product ID.");
+        String failure;
+        try {
+            if (inventorySystem.checkout(cart, heldQuantities, user.getUsername())) {
+                String message = "Order placed. Total: " + Money.format(cart.getSubtotalCents());
+                cart.clear();
+                return message;
+            }
+            failure = "Checkout failed. Some products in your cart are no longer available.";
+        } catch (IOException e) {
+            failure = "Checkout failed. Your order could not be saved. Please try again later.";
+        }
+
+        // Hold the committed stock again so the cart is left as it was
+        reservations.putAll(expiredReservations);
+        heldQuantities.forEach((productId, quantity) -> reservations
+                .computeIfAbsent(productId, id -> new ArrayList<>()).add(scheduler.hold(productId, quantity)));
+        return failure;
+    }
+
+    /**
+     * Returns the stock held for one cart line to the inventory.
+     *
+     * @param productId The ID of the product.
+     */
+    private void releaseReservations(int productId) {
+        List<Reservation> held = reservations.remove(productId);
+        if (held != null) {
+            for (Reservation reservation : held) {
+                inventorySystem.getReservationScheduler().release(reservation);
+            }
+        }
+    }
+
+    /**
+     * Empties the cart and returns all of its held stock to the inventory, so that
+     * stock is not kept out of the inventory after the customer logs out.
+     */
+    public void logout() {
+        for (Product product : cart.getLines()) {
+            releaseReservations(product.getProductId());
+        }
+        cart.clear();
+    }
+
+    /**
+     * Checks whether any of the stock held for a cart line has expired.
+     *
+     * @param productId The ID of the product.
+     * @return True if a hold for the product expired, false otherwise.
+     */
+    private boolean hasExpiredReservation(int productId) {
+        for (Reservation reservation : reservations.getOrDefault(productId, List.of())) {
+            if (reservation.isExpired()) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
@@ -1,24 +1,124 @@
 package edu.acg.itc2205;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 /**
  * The InventorySystem class manages the inventory of products.
  */
 public class InventorySystem {
-    private List<Product> products;
+    private volatile ProductIndex products = new ProductIndex();  // Products indexed by ID, kept in insertion order; replaced on reload
     private static final String PRODUCT_FILE_PATH = "Products.txt";
+    private static final String PRODUCT_LOG_FILE_PATH = "Products.log";  // Changed products appended since the last full write
+    private static final int PRODUCT_LOG_COMPACTION_THRESHOLD = 10000;  // Log records that trigger a full write
+    private static final String GENERATION_HEADER = "# generation ";  // First line of the product file and log
+    private static final long CART_RESERVATION_TTL_MILLIS = 15 * 60 * 1000;  // How long cart stock is held
+    private static final String ORDER_FILE_PATH = "Orders.txt";  // One record per checked-out order
+    private static final int CHECKOUT_LOCK_STRIPES = 64;  // Must be a power of two
+    private static final long PARALLEL_LOAD_THRESHOLD = 8L * 1024 * 1024;  // Product files at least this large are parsed in parallel
+    private static final int DISPLAY_BUFFER_SIZE = 64 * 1024;  // Characters of a full listing printed at a time
+    private static final LatencyHistogram GET_PRODUCT_LATENCY = Metrics.histogram(
+            "inventory_get_product_by_id_seconds", "Time taken to look up a product by ID.");
+    private static final LatencyHistogram SUBTRACT_QUANTITY_LATENCY = Metrics.histogram(
+            "inventory_subtract_quantity_seconds", "Time taken to subtract stock of a product.");
+    private static final LongAdder SUBTRACT_QUANTITY_REJECTIONS = Metrics.counter(
+            "inventory_subtract_quantity_rejected_total", "Stock subtractions rejected for an unknown product or insufficient stock.");
+    private static final LatencyHistogram ADD_PRODUCT_LATENCY = Metrics.histogram(
+            "inventory_add_product_seconds", "Time taken to add a product.");
+    private static final LatencyHistogram READ_PRODUCTS_LATENCY = Metrics.histogram(
+            "inventory_read_products_seconds", "Time taken to read the product file and log.");
+    private static final LatencyHistogram WRITE_PRODUCTS_LATENCY = Metrics.histogram(
+            "inventory_write_products_seconds", "Time taken to save the changed products.");
+    private static final LongAdder MALFORMED_PRODUCTS = Metrics.counter(
+            "inventory_malformed_products_total", "Malformed product rows skipped while reading the product file.");
+    private static final LongAdder IO_ERRORS = Metrics.counter(
+            "inventory_io_errors_total", "Failures to read or write the product files.");
+    private volatile long productFileLastModified;  // Modification time of the product file when it was last read or written
+    private volatile long productLogLastModified;  // Modification time of the product log when it was last read or written
+    private int productLogRecords;  // Records in the product log
+    private long productGeneration;  // Generation of the product file, raised each time it is fully rewritten
+    private long productLogGeneration = -1;  // Generation of the product file the log applies to, or -1 if there is no log
+    private final Set<Integer> dirtyProductIds = ConcurrentHashMap.newKeySet();  // Products changed since the last save
+    private volatile ProductStore store;  // Compact records of products not yet accessed, or null if every product is loaded
+    private String binaryFileName;  // The binary product file backing the store, or null when products are stored as text
+    private final boolean columnar;  // Whether the text file is loaded into a ColumnarProductStore
+    private final ProductCache cache;  // Recently used products of a cached binary inventory, or null if accessed products are kept
+    private final ReentrantReadWriteLock storeLock = new ReentrantReadWriteLock();  // Shared by write-through updates, exclusive while the binary file is rewritten
+    private final ReentrantLock saveLock = new ReentrantLock();  // Held while the product files are written, a batch is applied or the files are reloaded
+    private final ReservationScheduler reservationScheduler = new ReservationScheduler(this, CART_RESERVATION_TTL_MILLIS);
+    private final ReentrantLock[] checkoutLocks = newCheckoutLocks();  // Striped by product ID
+    private final Object orderFileLock = new Object();
+    private volatile ProductSearchIndex searchIndex;  // Built on the first search; null until then and after a reload
+    private volatile RangeIndexes rangeIndexes;  // Built on the first range query
 
     /**
      * Constructs an InventorySystem and reads products from a file.
      */
     public InventorySystem() {
-        products = new ArrayList<>();
+        this(false);
+    }
+
+    /**
+     * Constructs an InventorySystem and reads products from a file, optionally into compact
+     * columnar storage. In columnar mode, products are kept in primitive arrays and read into
+     * Product objects only when they are accessed, which suits catalogs of many millions of
+     * products of which only a small share is touched.
+     *
+     * @param columnar True to store the products in a ColumnarProductStore.
+     */
+    public InventorySystem(boolean columnar) {
+        this.columnar = columnar;
+        this.cache = null;
         readProductsFromFile();  // Automatically read products when the system is created
     }
 
+    /**
+     * Constructs an InventorySystem backed by a binary product file. Products are read
+     * from the memory-mapped file when they are first accessed instead of being loaded upfront.
+     *
+     * @param binaryFileName The name of the binary product file.
+     * @throws IOException If the file cannot be opened.
+     * @see #exportToBinaryFile(String)
+     */
+    public InventorySystem(String binaryFileName) throws IOException {
+        this(binaryFileName, 0);
+    }
+
+    /**
+     * Constructs an InventorySystem backed by a binary product file, keeping at most the given
+     * number of products in memory. Products are read from the memory-mapped file when they
+     * are accessed and kept in a ProductCache, which evicts the least used ones. Changes to
+     * quantities and prices are written straight into the file, so an evicted product is never
+     * out of date on disk; new and renamed products stay in memory until the next save.
+     *
+     * @param binaryFileName The name of the binary product file.
+     * @param cacheCapacity  The maximum number of cached products, or 0 to keep every accessed product.
+     * @throws IOException If the file cannot be opened.
+     */
+    public InventorySystem(String binaryFileName, int cacheCapacity) throws IOException {
+        this.columnar = false;
+        this.cache = cacheCapacity > 0 ? new ProductCache(cacheCapacity) : null;
+        this.binaryFileName = binaryFileName;
+        store = BinaryProductStore.open(binaryFileName);
+    }
+
     /**
      * Retrieves a product based on its ID.
      *
@@ -26,12 +126,12 @@ public class InventorySystem {
      * @return The product with the specified ID, or null if not found.
      */
     public Product getProductById(int productId) {
-        for (Product product : products) {
-            if (product.getProductId() == productId) {
-                return product;
-            }
+        long start = System.nanoTime();
+        try {
+            return findProduct(productId);
+        } finally {
+            GET_PRODUCT_LATENCY.recordSince(start);
         }
-        return null;
     }
 
     /**
@@ -42,55 +142,879 @@ public class InventorySystem {
      * @return True if the quantity is successfully updated, false otherwise.
      */
     public boolean updateProductQuantity(int productId, int newQuantity) {
-        for (Product product : products) {
-            if (product.getProductId() == productId) {
-                product.setQuantity(newQuantity);
-                return true;  // Successfully updated quantity
+        Product product = findProductToChange(productId);
+        if (product == null) {
+            return false;  // Product not found
+        }
+        product.setQuantity(newQuantity);
+        return true;  // Successfully updated quantity
+    }
+
+    /**
+     * Re-reads the product file if it has been modified since it was last read or written,
+     * so that an inventory shared between sessions picks up external changes. The new
+     * products replace the index in one step, so concurrent readers see either the old or
+     * the new catalog, never a partly loaded one.
+     * <p>
+     * The modification times are checked without locking. While products are being saved or
+     * a batch is being applied, the check is skipped instead of waiting, since the files are
+     * then being written by this inventory and the next call checks them again.
+     * <p>
+     * Changes made in memory but not saved yet are applied over the reloaded products and
+     * stay marked for saving, so a reload never discards them.
+     */
+    public void reloadIfModified() {
+        if (binaryFileName != null || !isModifiedOnDisk()) {
+            return;  // The binary file is read on demand
+        }
+        if (!saveLock.tryLock()) {
+            return;
+        }
+        try {
+            if (isModifiedOnDisk()) {
+                List<Product> unsaved = new ArrayList<>();
+                for (Integer productId : dirtyProductIds) {
+                    Product product = findProduct(productId);
+                    if (product != null) {
+                        unsaved.add(product);
+                    }
+                }
+                readProductsFromFile();
+                unsaved.forEach(this::mergeUnsaved);
             }
+        } finally {
+            saveLock.unlock();
         }
-        return false;  // Product not found
     }
 
     /**
-     * Reads products from a text file and adds them to the inventory.
+     * Applies an unsaved product over its reloaded copy, or adds it again if it has not been
+     * saved at all. The setters mark the reloaded product for saving.
+     *
+     * @param unsaved The product as changed in memory before the reload.
+     */
+    private void mergeUnsaved(Product unsaved) {
+        Product reloaded = findProductToChange(unsaved.getProductId());
+        if (reloaded == null) {
+            insertProduct(unsaved);
+        } else if (reloaded != unsaved) {
+            reloaded.setProductName(unsaved.getProductName());
+            reloaded.setPriceCents(unsaved.getPriceCents());
+            reloaded.setQuantity(unsaved.getQuantity());
+        }
+    }
+
+    private boolean isModifiedOnDisk() {
+        return new File(PRODUCT_FILE_PATH).lastModified() != productFileLastModified
+                || new File(PRODUCT_LOG_FILE_PATH).lastModified() != productLogLastModified;
+    }
+
+    /**
+     * Reads products from a text file into a new index, applies the changes recorded in
+     * the product log since the file was last fully written, and then makes the new index
+     * the inventory's products. In columnar mode, the products are read into a new
+     * ColumnarProductStore instead, and the index only receives products changed by the log.
      */
     private void readProductsFromFile() {
+        long start = System.nanoTime();
         String fileName = "Products.txt";
         createFileIfNotExists();
+        File file = new File(fileName);
+        ProductIndex loaded = new ProductIndex();
+        ColumnarProductStore.Builder columns = columnar ? new ColumnarProductStore.Builder() : null;
 
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                int id = Integer.parseInt(parts[0].trim());
-                String name = parts[1].trim();
-                int quantity = Integer.parseInt(parts[2].trim());
-                double price = Double.parseDouble(parts[3].trim());
+        try {
+            productGeneration = readGeneration(file);
+            List<ProductChunk> chunks;
+            if (file.length() >= PARALLEL_LOAD_THRESHOLD) {
+                chunks = readProductChunksInParallel(file, columnar);
+            } else {
+                try (Reader reader = new FileReader(file)) {
+                    chunks = List.of(readProductChunk(reader, columnar));
+                }
+            }
 
-                products.add(new Product(id, name, quantity, price));
+            // Merge in file order, so the first of several products with the same ID is kept
+            int lineOffset = 0;
+            for (ProductChunk chunk : chunks) {
+                if (columns != null) {
+                    columns.append(chunk.columns);
+                }
+                for (Product product : chunk.products) {
+                    loaded.putIfAbsent(product);
+                }
+                MALFORMED_PRODUCTS.add(chunk.errorLines.size());
+                for (int i = 0; i < chunk.errorLines.size(); i++) {
+                    System.err.println("Skipping malformed product in " + fileName + " on line "
+                            + (lineOffset + chunk.errorLines.get(i)) + ": " + chunk.errors.get(i));
+                }
+                lineOffset += chunk.lineCount;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            IO_ERRORS.increment();
+            System.err.println("Error reading products from file: " + e.getMessage());
+        }
+        productFileLastModified = file.lastModified();
+        ProductStore loadedStore = columns != null ? columns.build() : null;
+
+        replayProductLog(loaded, loadedStore);
+
+        // Track changes only once loading is done, so loaded products are not considered dirty
+        loaded.forEach(product -> product.setInventorySystem(this));
+        synchronized (this) {  // Not while a search or range index is being built from the old products
+            store = loadedStore;
+            products = loaded;
+            searchIndex = null;
+            rangeIndexes = null;
+        }
+        READ_PRODUCTS_LATENCY.recordSince(start);
+    }
+
+    /**
+     * Parses a large product file on the fork-join pool. The file is split into byte ranges
+     * that end on line boundaries, and each range is parsed independently.
+     *
+     * @param file     The product file.
+     * @param columnar True to parse the products into columns instead of Product objects.
+     * @return The parsed ranges, in file order.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<ProductChunk> readProductChunksInParallel(File file, boolean columnar) throws IOException {
+        long length = file.length();
+        int chunkCount = (int) Math.max(ForkJoinPool.getCommonPoolParallelism() * 4L, length / Integer.MAX_VALUE + 1);
+        long[] boundaries = new long[chunkCount + 1];
+        boundaries[chunkCount] = length;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            for (int i = 1; i < chunkCount; i++) {
+                // Move the split point forward to just after the next newline
+                long position = Math.max(length * i / chunkCount, boundaries[i - 1]);
+                raf.seek(position);
+                int b;
+                while ((b = raf.read()) != -1 && b != '\n') {
+                    position++;
+                }
+                boundaries[i] = Math.min(position + 1, length);
+            }
+        }
+
+        return IntStream.range(0, chunkCount).parallel()
+                .mapToObj(i -> {
+                    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                        byte[] bytes = new byte[(int) (boundaries[i + 1] - boundaries[i])];
+                        raf.seek(boundaries[i]);
+                        raf.readFully(bytes);
+                        return readProductChunk(new InputStreamReader(new ByteArrayInputStream(bytes)), columnar);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Parses product rows. Malformed rows are collected as errors instead of aborting the load.
+     *
+     * @param reader   The rows to parse.
+     * @param columnar True to parse the products into columns instead of Product objects.
+     * @return The parsed products and errors, with line numbers relative to the start of the reader.
+     * @throws IOException If reading fails.
+     */
+    static ProductChunk readProductChunk(Reader reader, boolean columnar) throws IOException {
+        ProductChunk chunk = new ProductChunk();
+        chunk.columns = columnar ? new ColumnarProductStore.Builder() : null;
+        CsvTokenizer tokenizer = new CsvTokenizer(reader);
+        while (tokenizer.nextRow()) {
+            if (tokenizer.isBlankRow() || tokenizer.isCommentRow()) {
+                continue;
+            }
+            try {
+                if (columnar) {
+                    int id = tokenizer.nextInt();
+                    String name = tokenizer.nextString();
+                    int quantity = tokenizer.nextInt();
+                    chunk.columns.add(id, name, quantity, tokenizer.nextCents());
+                } else {
+                    chunk.products.add(parseProduct(tokenizer));
+                }
+            } catch (IllegalArgumentException e) {
+                chunk.errorLines.add(tokenizer.getLineNumber());
+                chunk.errors.add(e.getMessage());
+            }
+        }
+        chunk.lineCount = tokenizer.getLineNumber();
+        return chunk;
+    }
+
+    /**
+     * The products and errors parsed from one part of a product file.
+     */
+    static class ProductChunk {
+        final List<Product> products = new ArrayList<>();
+        ColumnarProductStore.Builder columns;  // The parsed products in columnar mode
+        final List<Integer> errorLines = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        int lineCount;
+    }
+
+    /**
+     * Retrieves the generation recorded in the first line of a product file or log.
+     * Files written before generations were recorded belong to generation 0.
+     *
+     * @param file The product file or log.
+     * @return The generation of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long readGeneration(File file) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            return parseGeneration(br.readLine());
+        }
+    }
+
+    private static long parseGeneration(String firstLine) {
+        if (firstLine != null && firstLine.startsWith(GENERATION_HEADER)) {
+            try {
+                return Long.parseLong(firstLine.substring(GENERATION_HEADER.length()).trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Applies the product records in the log to the loaded products. A record whose
+     * checksum does not match, such as a line torn by a crash, is ignored. The log is
+     * ignored as a whole if it was started for an older product file, which happens when
+     * a crash interrupts a full write after the new product file was moved into place.
+     *
+     * @param loaded      The products read from the product file.
+     * @param loadedStore The columnar products read from the product file, or null.
+     */
+    private void replayProductLog(ProductIndex loaded, ProductStore loadedStore) {
+        File logFile = new File(PRODUCT_LOG_FILE_PATH);
+        productLogRecords = 0;
+        productLogGeneration = -1;
+        productLogLastModified = logFile.lastModified();
+        if (!logFile.exists()) {
+            return;
+        }
+
+        try (BufferedReader br = new BufferedReader(new FileReader(logFile))) {
+            String line = br.readLine();
+            productLogGeneration = parseGeneration(line);
+            if (productLogGeneration != productGeneration) {
+                System.err.println("Ignoring " + PRODUCT_LOG_FILE_PATH + ": its changes are already in " + PRODUCT_FILE_PATH);
+                return;
+            }
+            CsvTokenizer tokenizer = new CsvTokenizer();
+            for (; line != null; line = br.readLine()) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+                int checksumStart = line.lastIndexOf(',');
+                if (checksumStart < 0 || !line.substring(checksumStart + 1).equals(checksum(line.substring(0, checksumStart)))) {
+                    continue;
+                }
+                tokenizer.reset(line.substring(0, checksumStart));
+                Product logged = parseProduct(tokenizer);
+                Product product = loaded.get(logged.getProductId());
+                if (product == null && loadedStore != null && loadedStore.contains(logged.getProductId())) {
+                    product = loadedStore.read(logged.getProductId());
+                    loaded.putIfAbsent(product);
+                }
+                if (product == null) {
+                    loaded.putIfAbsent(logged);
+                } else {
+                    product.setProductName(logged.getProductName());
+                    product.setQuantity(logged.getQuantity());
+                    product.setPriceCents(logged.getPriceCents());
+                }
+                productLogRecords++;
             }
         } catch (IOException e) {
+            IO_ERRORS.increment();
             System.err.println("Error reading products from file: " + e.getMessage());
         }
     }
 
     /**
-     * Writes the current inventory of products to a text file.
+     * Saves the inventory. Only the products changed since the last save are appended
+     * to the product log, so the cost depends on the number of changes rather than on
+     * the size of the catalog. Once the log grows large, all products are rewritten to
+     * the products file and the log is emptied.
      */
     public void writeProductsToFile() {
+        long start = System.nanoTime();
+        saveLock.lock();
+        try {
+            writeChangedProducts();
+        } finally {
+            saveLock.unlock();
+            WRITE_PRODUCTS_LATENCY.recordSince(start);
+        }
+    }
+
+    private void writeChangedProducts() {
+        if (binaryFileName != null) {
+            writeProductsToBinaryFile();
+            return;
+        }
+        if (productLogRecords + dirtyProductIds.size() >= PRODUCT_LOG_COMPACTION_THRESHOLD) {
+            writeAllProducts();
+            return;
+        }
+
+        List<Integer> saving = new ArrayList<>(dirtyProductIds);
+        try (FileOutputStream out = openProductLog();
+             BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out))) {
+            // Remove before reading, so a change made while saving is picked up by the next save
+            dirtyProductIds.removeAll(saving);
+            int written = 0;
+            for (Integer productId : saving) {
+                Product product = findProduct(productId);
+                if (product != null) {
+                    String record = formatProduct(product);
+                    bw.write(record + "," + checksum(record));
+                    bw.newLine();
+                    written++;
+                }
+            }
+            bw.flush();
+            out.getFD().sync();
+            productLogRecords += written;
+            System.out.println("Products written to file: " + PRODUCT_LOG_FILE_PATH + " (" + written + " changed)");
+        } catch (IOException e) {
+            dirtyProductIds.addAll(saving);  // Not on disk, so the next save writes them again
+            IO_ERRORS.increment();
+            System.err.println("Error writing products to file: " + e.getMessage());
+        }
+        productLogLastModified = new File(PRODUCT_LOG_FILE_PATH).lastModified();
+    }
+
+    /**
+     * Opens the product log for appending. A log that is missing or was started for an
+     * older product file is replaced by an empty one first, so that the appended records
+     * are not ignored by the next load. Otherwise a record torn by a crash is cut off, so
+     * that the first appended record starts on a line of its own.
+     *
+     * @return The stream appending to the log.
+     * @throws IOException If the log cannot be prepared or opened.
+     */
+    private FileOutputStream openProductLog() throws IOException {
+        File logFile = new File(PRODUCT_LOG_FILE_PATH);
+        if (productLogGeneration != productGeneration || !logFile.exists()) {
+            startProductLog();
+        } else {
+            try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+                long end = raf.length();
+                while (end > 0) {
+                    raf.seek(end - 1);
+                    if (raf.read() == '\n') {
+                        break;
+                    }
+                    end--;
+                }
+                if (end < raf.length()) {
+                    raf.setLength(end);
+                }
+            }
+        }
+        return new FileOutputStream(logFile, true);
+    }
+
+    /**
+     * Replaces the product log with an empty log for the current product file. The log is
+     * written to a temporary file first and then moved into place.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    private void startProductLog() throws IOException {
+        File tempFile = new File(PRODUCT_LOG_FILE_PATH + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write((GENERATION_HEADER + productGeneration + System.lineSeparator()).getBytes());
+            out.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), Paths.get(PRODUCT_LOG_FILE_PATH),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        productLogGeneration = productGeneration;
+        productLogRecords = 0;
+    }
+
+    /**
+     * Writes the current inventory of products to a text file and empties the product log.
+     * The file is written to a temporary file first and then moved into place.
+     * This also exports a binary-backed inventory to the text format.
+     * <p>
+     * The new file records a higher generation than the old file and log, and the log is
+     * only replayed over a file of the same generation. A crash after the file is moved
+     * but before the log is emptied therefore cannot apply old log records over the new file.
+     */
+    public void writeAllProductsToFile() {
+        saveLock.lock();
+        try {
+            writeAllProducts();
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    private void writeAllProducts() {
         String fileName = "Products.txt";
-        createFileIfNotExists();
+        File tempFile = new File(fileName + ".tmp");
+        List<Integer> saving = new ArrayList<>();
+        if (binaryFileName == null) {
+            saving.addAll(dirtyProductIds);
+            dirtyProductIds.removeAll(saving);
+        }
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(fileName))) {
-            for (Product product : products) {
-                bw.write(product.getProductId() + ", " + product.getProductName() + ", "
-                        + product.getQuantity() + ", " + product.getPrice());
+        long generation;
+        try (FileOutputStream out = new FileOutputStream(tempFile);
+             BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out))) {
+            generation = Math.max(productGeneration, Math.max(readGeneration(new File(fileName)),
+                    readGeneration(new File(PRODUCT_LOG_FILE_PATH)))) + 1;
+            bw.write(GENERATION_HEADER + generation);
+            bw.newLine();
+            List<Product> allProducts = new ArrayList<>();
+            forEachProduct(allProducts::add);
+            for (Product product : allProducts) {
+                bw.write(formatProduct(product));
                 bw.newLine();
             }
+            bw.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            dirtyProductIds.addAll(saving);  // The old file is still in place, so the changes must be saved again
+            IO_ERRORS.increment();
+            System.err.println("Error writing products to file: " + e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(tempFile.toPath(), Paths.get(fileName),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            productGeneration = generation;
+        } catch (IOException e) {
+            dirtyProductIds.addAll(saving);
+            IO_ERRORS.increment();
+            System.err.println("Error writing products to file: " + e.getMessage());
+            return;
+        }
+
+        try {
+            // The new file holds every change; a log left from the old file is ignored and replaced by the next save
+            startProductLog();
             System.out.println("Products written to file: " + fileName);
         } catch (IOException e) {
+            IO_ERRORS.increment();
             System.err.println("Error writing products to file: " + e.getMessage());
         }
+        productFileLastModified = new File(fileName).lastModified();
+        productLogLastModified = new File(PRODUCT_LOG_FILE_PATH).lastModified();
+    }
+
+    /**
+     * Saves the changed products of a binary-backed inventory. Quantity and price changes
+     * are written into the mapped file in place; new or renamed products require the file
+     * to be rewritten. Once a cached inventory's file is rewritten, its new and renamed
+     * products are handed over to the cache instead of staying in memory for good.
+     */
+    private void writeProductsToBinaryFile() {
+        BinaryProductStore binaryStore = (BinaryProductStore) store;
+        boolean rewrite = false;
+        List<Integer> saving = new ArrayList<>(dirtyProductIds);
+        dirtyProductIds.removeAll(saving);
+        for (Integer productId : saving) {
+            Product product = products.get(productId);
+            if (product != null && !binaryStore.update(product)) {
+                rewrite = true;
+            }
+        }
+
+        try {
+            if (rewrite) {
+                storeLock.writeLock().lock();
+                try {
+                    exportToBinaryFile(binaryFileName);
+                    store = BinaryProductStore.open(binaryFileName);
+                    if (cache != null) {
+                        ProductIndex pinned = products;
+                        pinned.forEach(cache::put);  // Cached before they leave the index, so no second copy is read
+                        products = new ProductIndex();
+                    }
+                } finally {
+                    storeLock.writeLock().unlock();
+                }
+            } else {
+                binaryStore.force();
+            }
+            System.out.println("Products written to file: " + binaryFileName);
+        } catch (IOException e) {
+            dirtyProductIds.addAll(saving);  // Not known to be on disk, so the next save writes them again
+            IO_ERRORS.increment();
+            System.err.println("Error writing products to file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes all products to a binary product file, which can then be opened with
+     * {@link #InventorySystem(String)}. This is how a text catalog is imported into the binary format.
+     *
+     * @param fileName The name of the binary product file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void exportToBinaryFile(String fileName) throws IOException {
+        List<Product> allProducts = new ArrayList<>();
+        saveLock.lock();
+        try {
+            forEachProduct(allProducts::add);
+            BinaryProductStore.write(allProducts, fileName);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves a product by ID. For a binary inventory, a product that has not been accessed
+     * yet is read from the store and kept in memory from then on, or until it is evicted if
+     * the inventory is cached. If two sessions read the same product at once, both get the
+     * copy that was indexed first. For a columnar inventory, a product that has not been
+     * changed is read from the store into a temporary copy on every call, so reading the
+     * catalog does not fill the heap; a change to the copy keeps it in memory.
+     *
+     * @param productId The ID of the product.
+     * @return The product, or null if not found.
+     */
+    private Product findProduct(int productId) {
+        return findProduct(productId, !columnar);
+    }
+
+    /**
+     * Retrieves a product by ID in order to change it. A product of a columnar inventory is
+     * kept in memory, so concurrent changes all go to the same copy.
+     *
+     * @param productId The ID of the product.
+     * @return The product, or null if not found.
+     */
+    private Product findProductToChange(int productId) {
+        return findProduct(productId, true);
+    }
+
+    private Product findProduct(int productId, boolean keep) {
+        ProductIndex index = products;
+        Product product = index.get(productId);
+        ProductStore store = this.store;
+        if (product == null && cache != null) {
+            product = cache.get(productId, this::loadProduct);
+        } else if (product == null && store != null) {
+            product = store.read(productId);
+            if (product != null) {
+                product.setInventorySystem(this);
+                Product existing = keep ? index.putIfAbsent(product) : null;
+                if (existing != null) {
+                    product = existing;
+                }
+            }
+        }
+        return product;
+    }
+
+    private Product loadProduct(int productId) {
+        Product product = store.read(productId);
+        if (product != null) {
+            product.setInventorySystem(this);
+        }
+        return product;
+    }
+
+    /**
+     * Retrieves the cache of a cached binary inventory, whose counters show how well it works.
+     *
+     * @return The product cache, or null if the inventory is not cached.
+     * @see #InventorySystem(String, int)
+     */
+    public ProductCache getProductCache() {
+        return cache;
+    }
+
+    /**
+     * Performs an action for every product, in the order the products were added. No lock
+     * is taken, so listings run in parallel with each other and with products being added.
+     * Stored products that have not been accessed are passed as temporary copies rather than
+     * kept in memory, so the action must not change the products.
+     *
+     * @param action The action to perform.
+     */
+    private void forEachProduct(Consumer<Product> action) {
+        ProductIndex index = products;
+        ProductStore store = this.store;
+        if (store == null) {
+            index.forEach(action);
+            return;
+        }
+
+        for (int i = 0; i < store.size(); i++) {
+            Product product = index.get(store.productIdAt(i));
+            action.accept(product != null ? product : store.productAt(i));
+        }
+        index.forEach(product -> {
+            if (!store.contains(product.getProductId())) {
+                action.accept(product);  // Added since the store was written
+            }
+        });
+    }
+
+    /**
+     * Re-indexes a product for name search after its name has changed.
+     *
+     * @param product The renamed product.
+     */
+    void productRenamed(Product product) {
+        ProductSearchIndex index = searchIndex;
+        if (index != null) {
+            index.put(product.getProductId(), product.getProductName());
+        }
+    }
+
+    /**
+     * Finds products by name. Every word of the query must match a word of the product
+     * name, either entirely or as its beginning, so "graph" finds "Graphics Card".
+     * The search index is built on the first search and kept up to date as products
+     * are added and renamed.
+     *
+     * @param query    The words to search for.
+     * @param offset   The number of ranked results to skip.
+     * @param pageSize The maximum number of results to return.
+     * @return The matching products on the requested page, best match first.
+     */
+    public List<Product> searchProducts(String query, int offset, int pageSize) {
+        List<Product> results = new ArrayList<>();
+        for (int productId : getSearchIndex().search(query, offset, pageSize)) {
+            Product product = findProduct(productId);
+            if (product != null) {
+                results.add(product);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Retrieves the name search index, building it from the current products if needed.
+     * Products of a binary or columnar inventory are indexed by the names in the store,
+     * without reading the products into memory.
+     *
+     * @return The search index.
+     */
+    private ProductSearchIndex getSearchIndex() {
+        ProductSearchIndex index = searchIndex;
+        if (index != null) {
+            return index;
+        }
+
+        synchronized (this) {
+            if (searchIndex == null) {
+                ProductIndex indexed = products;
+                ProductSearchIndex built = new ProductSearchIndex();
+                // Publish first, so products added or renamed while building are indexed too;
+                // their updates wait for the build to finish and then overwrite what it read
+                searchIndex = built;
+                synchronized (built) {
+                    ProductStore store = this.store;
+                    if (store != null) {
+                        for (int i = 0; i < store.size(); i++) {
+                            int productId = store.productIdAt(i);
+                            if (!indexed.containsKey(productId)) {
+                                built.put(productId, store.productNameAt(i));
+                            }
+                        }
+                    }
+                    indexed.forEach(product -> built.put(product.getProductId(), product.getProductName()));
+                }
+            }
+            return searchIndex;
+        }
+    }
+
+    /**
+     * Finds the products priced within a range, cheapest first.
+     *
+     * @param minPriceCents The lowest price in cents, inclusive.
+     * @param maxPriceCents The highest price in cents, inclusive.
+     * @param limit         The maximum number of products to return.
+     * @return The products.
+     */
+    public List<Product> getProductsInPriceRange(long minPriceCents, long maxPriceCents, int limit) {
+        return findProducts(buildRangeIndexes().prices.range(minPriceCents, maxPriceCents, limit));
+    }
+
+    /**
+     * Finds the most expensive products, most expensive first.
+     *
+     * @param limit The maximum number of products to return.
+     * @return The products.
+     */
+    public List<Product> getMostExpensiveProducts(int limit) {
+        return findProducts(buildRangeIndexes().prices.highest(limit));
+    }
+
+    /**
+     * Finds the products whose stock has fallen below a threshold, lowest stock first.
+     *
+     * @param threshold The quantity below which stock is considered low.
+     * @param limit     The maximum number of products to return.
+     * @return The products.
+     */
+    public List<Product> getLowStockProducts(int threshold, int limit) {
+        return findProducts(buildRangeIndexes().quantities.range(Long.MIN_VALUE, threshold - 1L, limit));
+    }
+
+    private List<Product> findProducts(List<Integer> productIds) {
+        List<Product> found = new ArrayList<>();
+        for (int productId : productIds) {
+            Product product = findProduct(productId);
+            if (product != null) {
+                found.add(product);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Builds the price and quantity indexes from the current products if they do not exist yet.
+     * From then on, every product change updates them. Products of a binary or columnar
+     * inventory that have not been read into memory are indexed by the values in the store.
+     *
+     * @return The indexes.
+     */
+    private RangeIndexes buildRangeIndexes() {
+        RangeIndexes indexes = rangeIndexes;
+        if (indexes != null) {
+            return indexes;
+        }
+
+        synchronized (this) {
+            indexes = rangeIndexes;
+            if (indexes != null) {
+                return indexes;
+            }
+            ProductIndex indexed = products;
+            indexes = new RangeIndexes();
+            ProductRangeIndex prices = indexes.prices;
+            ProductRangeIndex quantities = indexes.quantities;
+            // Publish first, so changes made while building are indexed; the build never overwrites them
+            rangeIndexes = indexes;
+
+            ProductStore store = this.store;
+            if (store != null) {
+                for (int i = 0; i < store.size(); i++) {
+                    int productId = store.productIdAt(i);
+                    if (!indexed.containsKey(productId)) {
+                        Product stored = store.productAt(i);
+                        prices.putIfAbsent(productId, stored.getPriceCents());
+                        quantities.putIfAbsent(productId, stored.getQuantity());
+                    }
+                }
+            }
+            indexed.forEach(product -> {
+                prices.putIfAbsent(product.getProductId(), product.getPriceCents());
+                quantities.putIfAbsent(product.getProductId(), product.getQuantity());
+            });
+            return indexes;
+        }
+    }
+
+    /**
+     * The price and quantity indexes, published together so a reader always sees both or neither.
+     */
+    private static final class RangeIndexes {
+        final ProductRangeIndex prices = new ProductRangeIndex(Product::getPriceCents);
+        final ProductRangeIndex quantities = new ProductRangeIndex(Product::getQuantity);
+    }
+
+    /**
+     * Records that a product has changed and needs to be saved, and moves it to its new
+     * position in the price and quantity indexes. A cached inventory writes the change
+     * straight into the binary file instead.
+     *
+     * @param product The changed product.
+     */
+    void productChanged(Product product) {
+        if (columnar) {
+            keepChangedProduct(product);  // Before it is marked, so a save never reads the old values from the store
+        }
+        if (cache == null || !writeThrough(product)) {
+            dirtyProductIds.add(product.getProductId());
+        }
+        RangeIndexes indexes = rangeIndexes;
+        if (indexes != null) {
+            indexes.prices.update(product);
+            indexes.quantities.update(product);
+        }
+    }
+
+    /**
+     * Keeps a changed product of a columnar inventory in memory until the next save, since the
+     * store still holds its old values. If another copy of the product is already kept, the
+     * change is copied into that copy.
+     *
+     * @param product The changed product.
+     */
+    private void keepChangedProduct(Product product) {
+        Product kept = products.putIfAbsent(product);
+        if (kept != null && kept != product) {
+            kept.setProductName(product.getProductName());
+            kept.setPriceCents(product.getPriceCents());
+            kept.setQuantity(product.getQuantity());
+        }
+    }
+
+    /**
+     * Writes the quantity and price of a product of a cached inventory into the binary file.
+     * A product that cannot be updated in place, because it is new or renamed, is kept in the
+     * index so it is not evicted before the next save rewrites the file.
+     *
+     * @param product The changed product.
+     * @return True if the change was written, false if the product has to be saved later.
+     */
+    private boolean writeThrough(Product product) {
+        storeLock.readLock().lock();
+        try {
+            // Concurrent changes of one product are written one at a time, so the last write has the latest values
+            synchronized (product) {
+                if (((BinaryProductStore) store).update(product)) {
+                    return true;
+                }
+            }
+            products.putIfAbsent(product);
+            return false;
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
+
+    private static String formatProduct(Product product) {
+        StringBuilder record = new StringBuilder();
+        record.append(product.getProductId()).append(", ").append(product.getProductName()).append(", ")
+                .append(product.getQuantity()).append(", ");
+        return Money.appendTo(record, product.getPriceCents()).toString();
+    }
+
+    private static Product parseProduct(CsvTokenizer tokenizer) {
+        int id = tokenizer.nextInt();
+        String name = tokenizer.nextString();
+        int quantity = tokenizer.nextInt();
+        long priceCents = tokenizer.nextCents();
+
+        return Product.withPriceCents(id, name, quantity, priceCents);
+    }
+
+    private static String checksum(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes());
+        return Long.toHexString(crc.getValue());
     }
 
     /**
@@ -109,31 +1033,216 @@ public class InventorySystem {
         }
     }
 
+    /**
+     * Streams all products, in the order the products were added. The stream is lazy, so
+     * products of a binary or columnar inventory are only read from the store as they are consumed.
+     *
+     * @return A stream of the products.
+     */
+    public Stream<Product> streamProducts() {
+        return streamProducts(0);
+    }
+
+    /**
+     * Streams the products from the given position on, in the order the products were added.
+     * Skipped products of a binary or columnar inventory are not read from the store.
+     *
+     * @param offset The number of products to skip.
+     * @return A stream of the remaining products.
+     */
+    private Stream<Product> streamProducts(int offset) {
+        ProductStore store = this.store;
+        if (store == null) {
+            return products.stream().skip(offset);
+        }
+
+        int storedCount = store.size();
+        Stream<Product> stored = IntStream.range(Math.min(offset, storedCount), storedCount)
+                .mapToObj(i -> findProduct(store.productIdAt(i)));
+        Stream<Product> added = products.stream()
+                .filter(product -> !store.contains(product.getProductId()))  // Added since the store was written
+                .skip(Math.max(0, offset - storedCount));
+        return Stream.concat(stored, added);
+    }
+
+    /**
+     * Retrieves one page of products, in the order the products were added.
+     *
+     * @param offset   The number of products before the page.
+     * @param pageSize The maximum number of products on the page.
+     * @return The products on the page; empty if the offset is past the last product.
+     */
+    public List<Product> getProductPage(int offset, int pageSize) {
+        return streamProducts(Math.max(0, offset)).limit(Math.max(0, pageSize)).collect(Collectors.toList());
+    }
+
     /**
      * Displays all products in the inventory.
      */
     public void displayProducts() {
-        System.out.println("----- Available Products -----");
-        for (Product product : products) {
-            System.out.println(product);
+        displayProducts(System.out);
+    }
+
+    /**
+     * Displays all products in the inventory on the given stream. Lines are rendered into
+     * one reusable buffer and written in blocks rather than formatted and printed one by one.
+     *
+     * @param out The stream to print the products to.
+     */
+    public void displayProducts(PrintStream out) {
+        out.println("----- Available Products -----");
+        StringBuilder lines = new StringBuilder(DISPLAY_BUFFER_SIZE + 256);
+        forEachProduct(product -> {
+            product.appendTo(lines).append(System.lineSeparator());
+            if (lines.length() >= DISPLAY_BUFFER_SIZE) {
+                out.print(lines);
+                lines.setLength(0);
+            }
+        });
+        out.print(lines);
+    }
+
+    /**
+     * Displays one page of products on the given stream.
+     *
+     * @param out      The stream to print the products to.
+     * @param page     The page number, starting from 1.
+     * @param pageSize The number of products per page.
+     * @return True if there are more products after this page, false otherwise.
+     */
+    public boolean displayProductPage(PrintStream out, int page, int pageSize) {
+        int offset = (int) Math.min(Integer.MAX_VALUE, (Math.max(1, page) - 1L) * pageSize);
+        List<Product> pageProducts = getProductPage(offset, pageSize + 1);  // One extra to tell whether another page follows
+        boolean hasMore = pageProducts.size() > pageSize;
+
+        StringBuilder lines = new StringBuilder();
+        lines.append("----- Available Products (page ").append(Math.max(1, page)).append(") -----")
+                .append(System.lineSeparator());
+        for (int i = 0; i < Math.min(pageSize, pageProducts.size()); i++) {
+            pageProducts.get(i).appendTo(lines).append(System.lineSeparator());
+        }
+        if (pageProducts.isEmpty()) {
+            lines.append("No more products.").append(System.lineSeparator());
         }
+        out.print(lines);
+        return hasMore;
     }
 
     /**
      * Adds a new product to the inventory.
      *
      * @param product The product to add.
+     * @return True if the product was added, false if a product with the same ID already exists.
      */
-    public void addProduct(Product product) {
-        if (!productExists(product.getProductId())) {
-            products.add(product);
-        } else {
-            System.out.println("Product with ID " + product.getProductId() + " already exists.");
+    public boolean addProduct(Product product) {
+        long start = System.nanoTime();
+        try {
+            return !productExists(product.getProductId()) && insertProduct(product);
+        } finally {
+            ADD_PRODUCT_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Puts a product that does not exist yet into the index and marks it for saving.
+     *
+     * @param product The product to insert.
+     * @return True if the product was inserted, false if another session added the same ID first.
+     */
+    private boolean insertProduct(Product product) {
+        if (products.putIfAbsent(product) != null) {
+            return false;
+        }
+        product.setInventorySystem(this);
+        productRenamed(product);  // Index the new product's name
+        productChanged(product);
+        return true;
+    }
+
+    /**
+     * Applies a batch of product additions and stock adjustments read from a file, in one
+     * pass over the ID index. Each row is either {@code add, id, name, quantity, price} or
+     * {@code adjust, id, quantityChange}. Invalid rows are reported and skipped; the other
+     * rows are still applied. The inventory is not saved; call {@link #writeProductsToFile()}
+     * once afterwards.
+     *
+     * @param fileName The name of the batch file.
+     * @param errors   The list that receives one message per rejected row.
+     * @return The number of rows applied.
+     * @throws IOException If the file cannot be read.
+     */
+    public int applyBatchFile(String fileName, List<String> errors) throws IOException {
+        int applied = 0;
+        saveLock.lock();  // Not reloaded halfway, which would drop the rows applied so far
+        try (Reader reader = new FileReader(fileName)) {
+            CsvTokenizer tokenizer = new CsvTokenizer(reader);
+            while (tokenizer.nextRow()) {
+                if (tokenizer.isBlankRow()) {
+                    continue;
+                }
+                try {
+                    String error = applyBatchRow(tokenizer);
+                    if (error == null) {
+                        applied++;
+                    } else {
+                        errors.add("Line " + tokenizer.getLineNumber() + ": " + error);
+                    }
+                } catch (IllegalArgumentException e) {
+                    errors.add("Line " + tokenizer.getLineNumber() + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            saveLock.unlock();
+        }
+        return applied;
+    }
+
+    /**
+     * Validates and applies one row of a batch file.
+     *
+     * @param tokenizer The tokenizer positioned on the row.
+     * @return Null if the row was applied, otherwise the reason it was rejected.
+     */
+    private String applyBatchRow(CsvTokenizer tokenizer) {
+        String operation = tokenizer.nextString();
+        int productId = tokenizer.nextInt();
+
+        switch (operation) {
+            case "add":
+                String name = tokenizer.nextString();
+                int quantity = tokenizer.nextInt();
+                long priceCents = tokenizer.nextCents();
+                if (name.isEmpty() || quantity < 0 || priceCents <= 0) {
+                    return "invalid name, quantity or price";
+                }
+                if (productExists(productId) || !insertProduct(Product.withPriceCents(productId, name, quantity, priceCents))) {
+                    return "product with ID " + productId + " already exists";
+                }
+                return null;
+            case "adjust":
+                int change = tokenizer.nextInt();
+                Product product = findProductToChange(productId);
+                if (product == null) {
+                    return "product with ID " + productId + " not found";
+                }
+                if (change >= 0) {
+                    try {
+                        product.releaseQuantity(change);
+                    } catch (ArithmeticException e) {
+                        return "quantity out of range for product with ID " + productId;
+                    }
+                } else if (!product.reserveQuantity(-change)) {
+                    return "insufficient quantity for product with ID " + productId;
+                }
+                return null;
+            default:
+                return "unknown operation '" + operation + "'";
         }
     }
 
     private boolean productExists(int productId) {
-        return products.stream().anyMatch(p -> p.getProductId() == productId);
+        ProductStore store = this.store;
+        return products.containsKey(productId) || (store != null && store.contains(productId));
     }
 
     /**
@@ -144,21 +1253,173 @@ public class InventorySystem {
      * @return True if the quantity is successfully subtracted, false otherwise.
      */
     public boolean subtractQuantity(int productId, int quantityToSubtract) {
-        for (Product product : products) {
-            if (product.getProductId() == productId) {
-                int currentQuantity = product.getQuantity();
-                if (currentQuantity >= quantityToSubtract) {
-                    product.setQuantity(currentQuantity - quantityToSubtract);
-                    return true; // Successfully subtracted quantity
-                } else {
-                    // Insufficient quantity to subtract
-                    System.out.println("Insufficient quantity. Please enter a valid quantity.");
+        long start = System.nanoTime();
+        try {
+            // The caller reports the result, which may be to a remote session rather than this console
+            Product product = findProductToChange(productId);
+            if (product != null && product.reserveQuantity(quantityToSubtract)) {
+                return true; // Successfully subtracted quantity
+            }
+            // Product not found or insufficient quantity to subtract
+            SUBTRACT_QUANTITY_REJECTIONS.increment();
+            return false;
+        } finally {
+            SUBTRACT_QUANTITY_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Atomically reserves stock of a product, for example when it is added to a cart.
+     * Safe to call from many sessions sharing this inventory.
+     *
+     * @param productId The ID of the product.
+     * @param quantity  The quantity to reserve.
+     * @return True if the stock was reserved, false if the product was not found or has insufficient stock.
+     */
+    public boolean reserveQuantity(int productId, int quantity) {
+        Product product = findProductToChange(productId);
+        return product != null && product.reserveQuantity(quantity);
+    }
+
+    /**
+     * Checks out a whole cart in one all-or-nothing operation. Every line is validated
+     * before any stock is taken, and if stock cannot be taken for one line, nothing is taken.
+     * Checkout locks are striped by product ID and always acquired in stripe order, so
+     * concurrent checkouts of overlapping carts cannot deadlock. The order is saved as a
+     * single record in the order file. If the record cannot be saved, the stock taken by
+     * this call is returned and the order is not placed.
+     *
+     * @param cart           The cart to check out.
+     * @param heldQuantities Quantities per product ID already taken from stock for the cart,
+     *                       for example by committed reservations; only the rest is taken now.
+     * @param customerName   The username of the customer placing the order.
+     * @return True if the order was placed, false if a product was not found or has insufficient stock.
+     * @throws IOException If the order cannot be saved.
+     */
+    public boolean checkout(Cart cart, Map<Integer, Integer> heldQuantities, String customerName) throws IOException {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (Product line : cart.getLines()) {
+            stripes.add(line.getProductId() & (CHECKOUT_LOCK_STRIPES - 1));
+        }
+
+        List<Product> taken = new ArrayList<>();
+        for (int stripe : stripes) {
+            checkoutLocks[stripe].lock();
+        }
+        try {
+            // Validate every line before taking any stock
+            for (Product line : cart.getLines()) {
+                Product product = findProduct(line.getProductId());
+                int needed = line.getQuantity() - heldQuantities.getOrDefault(line.getProductId(), 0);
+                if (product == null || (needed > 0 && product.getQuantity() < needed)) {
+                    return false;
+                }
+            }
+
+            // Take the stock; a lock-free reservation may still win a race, so undo on failure
+            for (Product line : cart.getLines()) {
+                int needed = line.getQuantity() - heldQuantities.getOrDefault(line.getProductId(), 0);
+                if (needed <= 0) {
+                    continue;
+                }
+                Product product = findProductToChange(line.getProductId());
+                if (!product.reserveQuantity(needed)) {
+                    releaseTakenStock(taken, heldQuantities);
                     return false;
                 }
+                taken.add(line);
+            }
+        } finally {
+            for (int stripe : stripes.descendingSet()) {
+                checkoutLocks[stripe].unlock();
+            }
+        }
+
+        try {
+            writeOrderToFile(cart, customerName);
+        } catch (IOException e) {
+            IO_ERRORS.increment();
+            System.err.println("Error writing order to file: " + e.getMessage());
+            releaseTakenStock(taken, heldQuantities);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the stock taken by a checkout that did not complete. Stock the cart already
+     * held before the checkout is not returned.
+     *
+     * @param taken          The cart lines whose stock was taken.
+     * @param heldQuantities Quantities per product ID the cart already held.
+     */
+    private void releaseTakenStock(List<Product> taken, Map<Integer, Integer> heldQuantities) {
+        for (Product takenLine : taken) {
+            findProductToChange(takenLine.getProductId()).releaseQuantity(
+                    takenLine.getQuantity() - heldQuantities.getOrDefault(takenLine.getProductId(), 0));
+        }
+    }
+
+    private static ReentrantLock[] newCheckoutLocks() {
+        ReentrantLock[] locks = new ReentrantLock[CHECKOUT_LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    /**
+     * Appends one record for a checked-out order to the order file.
+     *
+     * @param cart         The checked-out cart.
+     * @param customerName The username of the customer who placed the order.
+     * @throws IOException If the record cannot be written.
+     */
+    private void writeOrderToFile(Cart cart, String customerName) throws IOException {
+        StringBuilder record = new StringBuilder();
+        record.append(System.currentTimeMillis()).append(", ").append(customerName).append(",");
+        for (Product line : cart.getLines()) {
+            // Each line is written as productId:quantity:price
+            record.append(' ').append(line.getProductId()).append(':').append(line.getQuantity()).append(':');
+            Money.appendTo(record, line.getPriceCents());
+        }
+        record.append(", ");
+        Money.appendTo(record, cart.getSubtotalCents());
+
+        synchronized (orderFileLock) {
+            try (FileOutputStream out = new FileOutputStream(ORDER_FILE_PATH, true);
+                 BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out))) {
+                bw.write(record.toString());
+                bw.newLine();
+                bw.flush();
+                out.getFD().sync();
             }
         }
-        // Product not found
-        System.out.println("Product not found. Please enter a valid product ID.");
-        return false;
+    }
+
+    /**
+     * Retrieves the scheduler that holds stock for carts and returns it when the holds expire.
+     *
+     * @return The reservation scheduler of this inventory.
+     */
+    public ReservationScheduler getReservationScheduler() {
+        return reservationScheduler;
+    }
+
+    /**
+     * Atomically returns previously reserved stock of a product.
+     *
+     * @param productId The ID of the product.
+     * @param quantity  The quantity to release.
+     * @return True if the stock was released, false if the product was not found.
+     * @throws ArithmeticException If the product's quantity would overflow.
+     */
+    public boolean releaseQuantity(int productId, int quantity) {
+        Product product = findProductToChange(productId);
+        if (product == null) {
+            return false;
+        }
+        product.releaseQuantity(quantity);
+        return true;
     }
 }
@@ -0,0 +1,140 @@
+package edu.acg.itc2205;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class counts how long an operation takes, in log-linear buckets
+ * in the style of an HDR histogram. Durations below 16 ns get a bucket each; above that,
+ * every power of two is split into 8 buckets, so any recorded duration is known to within
+ * 12.5% across the whole range of a {@code long}.
+ * <p>
+ * Recording a duration only increments a counter in a fixed array, so it allocates
+ * nothing and takes no lock, and can stay enabled in production.
+ */
+public class LatencyHistogram {
+    private static final int LINEAR_BUCKETS = 16;  // Durations below this get one bucket per nanosecond
+    private static final int SUB_BUCKET_BITS = 3;  // Each power of two is split into 2^3 buckets
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int FIRST_EXPONENT = 4;  // log2(LINEAR_BUCKETS)
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (63 - FIRST_EXPONENT) * SUB_BUCKETS;
+    private static final int FIRST_EXPORTED_EXPONENT = 10;  // Exported bucket bounds start at 2^10 ns, about 1 microsecond
+    private static final int LAST_EXPORTED_EXPONENT = 34;  // and end at 2^34 ns, about 17 seconds
+
+    private final String name;
+    private final String help;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * Constructs an empty LatencyHistogram. Use {@link Metrics#histogram(String, String)}
+     * to create one that is included in the exported metrics.
+     *
+     * @param name The metric name.
+     * @param help A one-line description of the metric.
+     */
+    LatencyHistogram(String name, String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos The duration, in nanoseconds.
+     */
+    public void record(long nanos) {
+        long duration = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketIndex(duration));
+        totalNanos.add(duration);
+    }
+
+    /**
+     * Records the time elapsed since the given start time.
+     *
+     * @param startNanos A value returned by {@link System#nanoTime()} when the operation started.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Retrieves the number of recorded durations.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Estimates a percentile of the recorded durations.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The upper bound of the bucket holding the percentile, in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= Math.max(1, rank)) {
+                return bucketUpperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Appends the histogram in the Prometheus text exposition format, in seconds. Buckets
+     * are exported at powers of two from about 1 microsecond to about 17 seconds.
+     *
+     * @param out The builder to append to.
+     */
+    void appendPrometheus(StringBuilder out) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+
+        long cumulative = 0;
+        int bucket = 0;
+        for (int exponent = FIRST_EXPORTED_EXPONENT; exponent <= LAST_EXPORTED_EXPONENT; exponent++) {
+            // Buckets never straddle a power of two, so this counts exactly the durations below 2^exponent
+            int end = bucketIndex(1L << exponent);
+            for (; bucket < end; bucket++) {
+                cumulative += buckets.get(bucket);
+            }
+            out.append(name).append("_bucket{le=\"").append((double) (1L << exponent) / 1e9).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        for (; bucket < BUCKET_COUNT; bucket++) {
+            cumulative += buckets.get(bucket);
+        }
+        out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum ").append(totalNanos.sum() / 1e9).append('\n');
+        out.append(name).append("_count ").append(cumulative).append('\n');
+    }
+
+    private static int bucketIndex(long nanos) {
+        if (nanos < LINEAR_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int exponent = FIRST_EXPONENT + (index - LINEAR_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long upper = (long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+        return upper > 0 ? upper - 1 : Long.MAX_VALUE;  // The last bucket's bound overflows
+    }
+}
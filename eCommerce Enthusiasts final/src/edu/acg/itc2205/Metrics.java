@@ -0,0 +1,72 @@
+package edu.acg.itc2205;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * The Metrics class is the registry of the process's counters and latency histograms.
+ * Classes register their metrics once, in static fields, and record into them directly;
+ * the registry is only consulted when the metrics are exported. The export uses the
+ * Prometheus text exposition format, so it can be scraped as is or read by a person.
+ */
+public class Metrics {
+    private static final Map<String, Consumer<StringBuilder>> METRICS = new LinkedHashMap<>();  // Exporters by metric name, in registration order; guarded by itself
+
+    private Metrics() {
+    }
+
+    /**
+     * Registers a counter.
+     *
+     * @param name The metric name, conventionally ending in {@code _total}.
+     * @param help A one-line description of the metric.
+     * @return The counter to increment.
+     * @throws IllegalArgumentException If a metric with the name is already registered.
+     */
+    public static LongAdder counter(String name, String help) {
+        LongAdder counter = new LongAdder();
+        register(name, out -> out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" counter\n")
+                .append(name).append(' ').append(counter.sum()).append('\n'));
+        return counter;
+    }
+
+    /**
+     * Registers a latency histogram.
+     *
+     * @param name The metric name, conventionally ending in {@code _seconds}.
+     * @param help A one-line description of the metric.
+     * @return The histogram to record into.
+     * @throws IllegalArgumentException If a metric with the name is already registered.
+     */
+    public static LatencyHistogram histogram(String name, String help) {
+        LatencyHistogram histogram = new LatencyHistogram(name, help);
+        register(name, histogram::appendPrometheus);
+        return histogram;
+    }
+
+    /**
+     * Exports every registered metric in the Prometheus text exposition format.
+     *
+     * @return The exposition text.
+     */
+    public static String toPrometheusText() {
+        StringBuilder out = new StringBuilder();
+        synchronized (METRICS) {
+            for (Consumer<StringBuilder> exporter : METRICS.values()) {
+                exporter.accept(out);
+            }
+        }
+        return out.toString();
+    }
+
+    private static void register(String name, Consumer<StringBuilder> exporter) {
+        synchronized (METRICS) {
+            if (METRICS.putIfAbsent(name, exporter) != null) {
+                throw new IllegalArgumentException("Metric already registered: " + name);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package edu.acg.itc2205;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The Money class works with amounts of money held as a whole number of cents in a
+ * {@code long}. Cent amounts add up exactly, unlike {@code double} prices, and unlike
+ * BigDecimal they need no allocation. Every operation that could overflow is checked
+ * and throws an ArithmeticException instead of wrapping around.
+ */
+public class Money {
+    private static final long MAX_FAST_CENTS = 1L << 52;  // Cent amounts a double still represents exactly with room to spare
+    private static final int MAX_PLAIN_DIGITS = 15;  // Whole units parsed without BigDecimal; their cents cannot overflow
+    private static final long NOT_PLAIN = Long.MIN_VALUE;  // Returned by parsePlain for text it leaves to BigDecimal
+
+    private Money() {
+    }
+
+    /**
+     * Adds two amounts.
+     *
+     * @param cents      The first amount, in cents.
+     * @param otherCents The second amount, in cents.
+     * @return The sum, in cents.
+     * @throws ArithmeticException If the sum overflows.
+     */
+    public static long add(long cents, long otherCents) {
+        return Math.addExact(cents, otherCents);
+    }
+
+    /**
+     * Multiplies a unit price by a quantity.
+     *
+     * @param cents    The unit price, in cents.
+     * @param quantity The quantity.
+     * @return The total, in cents.
+     * @throws ArithmeticException If the total overflows.
+     */
+    public static long multiply(long cents, int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+
+    /**
+     * Converts an amount given as a double to cents, rounding half up to the nearest cent
+     * as the amount's decimal form would be rounded.
+     *
+     * @param amount The amount.
+     * @return The amount in cents.
+     * @throws ArithmeticException   If the amount is too large.
+     * @throws NumberFormatException If the amount is not finite.
+     */
+    public static long fromDouble(double amount) {
+        double scaled = amount * 100;
+        long rounded = Math.round(scaled);
+        if (Math.abs(scaled) < MAX_FAST_CENTS && Math.abs(scaled - rounded) < 1e-6) {
+            return rounded;  // Already a whole number of cents
+        }
+        return BigDecimal.valueOf(amount).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Converts an amount in cents to a double, for callers that still work with doubles.
+     *
+     * @param cents The amount, in cents.
+     * @return The amount.
+     */
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Parses an amount such as {@code 12}, {@code 12.5} or {@code 12.34}. Amounts with more
+     * than two decimal places are rounded half up to the nearest cent, and other notations
+     * accepted by BigDecimal, such as {@code 1.0E7}, are also understood. Plain amounts with
+     * at most two decimal places are parsed without allocating.
+     *
+     * @param text The amount to parse.
+     * @return The amount in cents.
+     * @throws NumberFormatException If the text is not a valid amount or is too large.
+     */
+    public static long parse(String text) {
+        String trimmed = text.trim();
+        long cents = parsePlain(trimmed);
+        if (cents != NOT_PLAIN) {
+            return cents;
+        }
+        try {
+            return new BigDecimal(trimmed).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + trimmed);
+        }
+    }
+
+    /**
+     * Parses an amount of the form {@code [-]units[.cents]} with at most two decimal places.
+     *
+     * @param text The trimmed amount.
+     * @return The amount in cents, or NOT_PLAIN if the text has any other form.
+     */
+    private static long parsePlain(String text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long units = 0;
+        int unitDigits = 0;
+        for (char c; i < length && unitDigits < MAX_PLAIN_DIGITS && (c = text.charAt(i)) >= '0' && c <= '9'; i++) {
+            units = units * 10 + (c - '0');
+            unitDigits++;
+        }
+        int fraction = 0;
+        int fractionDigits = 0;
+        if (i < length && text.charAt(i) == '.') {
+            i++;
+            for (char c; i < length && fractionDigits < 2 && (c = text.charAt(i)) >= '0' && c <= '9'; i++) {
+                fraction = fraction * 10 + (c - '0');
+                fractionDigits++;
+            }
+        }
+        if (i != length || unitDigits + fractionDigits == 0) {
+            return NOT_PLAIN;  // More digits, an exponent or not a number at all
+        }
+
+        long cents = units * 100 + (fractionDigits == 1 ? fraction * 10 : fraction);
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Appends an amount with two decimal places, for example {@code 12.30}.
+     *
+     * @param sb    The builder to append to.
+     * @param cents The amount, in cents.
+     * @return The builder.
+     */
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+        }
+        long units = Math.abs(cents / 100);
+        int fraction = (int) Math.abs(cents % 100);
+        sb.append(units).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    /**
+     * Formats an amount with two decimal places, for example {@code 12.30}.
+     *
+     * @param cents The amount, in cents.
+     * @return The formatted amount.
+     */
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(24), cents).toString();
+    }
+}
@@ -0,0 +1,162 @@
+package edu.acg.itc2205;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The PasswordHasher class hashes and verifies passwords with salted PBKDF2. Hashes are
+ * stored as {@code pbkdf2$iterations$salt$hash}, with the salt and hash in Base64, so the
+ * iteration count can be raised later without invalidating existing hashes.
+ * <p>
+ * The key derivation is deliberately slow, so it runs on a fixed pool of worker threads
+ * with a bounded queue. At most one derivation per worker runs at once, and when the queue
+ * is full further requests are rejected instead of piling up behind it.
+ */
+public class PasswordHasher implements AutoCloseable {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2";
+    private static final int ITERATIONS = 120000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int QUEUE_CAPACITY = 256;  // Derivations waiting for a worker before requests are rejected
+
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * Constructs a PasswordHasher.
+     *
+     * @param maxConcurrentHashes The number of worker threads, and so the maximum number
+     *                            of key derivations running at once.
+     */
+    public PasswordHasher(int maxConcurrentHashes) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(maxConcurrentHashes, maxConcurrentHashes, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Hashes a password with a new random salt.
+     *
+     * @param password The password to hash.
+     * @return The encoded hash.
+     * @throws RejectedExecutionException If too many hashes are already waiting.
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = runOnWorker(() -> derive(password, salt, ITERATIONS));
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + "$" + ITERATIONS + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Checks a password against a stored password. A stored password that is not an
+     * encoded hash is compared as plain text, so that users registered before passwords
+     * were hashed can still log in.
+     *
+     * @param password The password to check.
+     * @param stored   The stored hash or plain-text password.
+     * @return True if the password matches, false otherwise.
+     * @throws RejectedExecutionException If too many hashes are already waiting.
+     */
+    public boolean verify(String password, String stored) {
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            byte[] actual = runOnWorker(() -> derive(password, salt, iterations));
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;  // Malformed hash
+        }
+    }
+
+    /**
+     * Checks whether a stored password should be hashed again, because it is still plain
+     * text or was hashed with fewer iterations than are used now.
+     *
+     * @param stored The stored hash or plain-text password.
+     * @return True if the password should be hashed again after the next successful login.
+     */
+    public boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Checks whether a stored password is an encoded hash.
+     *
+     * @param stored The stored password.
+     * @return True if the password is hashed, false if it is plain text.
+     */
+    public static boolean isHashed(String stored) {
+        return stored.startsWith(PREFIX + "$");
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Runs a key derivation on a worker thread and waits for its result.
+     *
+     * @param derivation The derivation to run.
+     * @return The derived key.
+     * @throws RejectedExecutionException If the queue of waiting derivations is full.
+     */
+    private byte[] runOnWorker(Callable<byte[]> derivation) {
+        try {
+            return workers.submit(derivation).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for a password hash", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+}
@@ -1,16 +1,21 @@
 package edu.acg.itc2205;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * The Product class represents a product with its properties.
  */
 public class Product implements Serializable {
     private static final long serialVersionUID = 1L;
+    // Compare-and-set access to the quantity field for lock-free stock reservation
+    private static final AtomicIntegerFieldUpdater<Product> QUANTITY =
+            AtomicIntegerFieldUpdater.newUpdater(Product.class, "quantity");
     private int productId;
-    private String productName;
-    private int quantity;
-    private double price;
+    private volatile String productName;  // Volatile so sessions reading the shared catalog see updates
+    private volatile int quantity;
+    private volatile long priceCents;  // The price as a whole number of cents, so totals add up exactly
+    private transient InventorySystem inventorySystem;  // The inventory notified when this product changes
 
     /**
      * Constructs a new Product with the given properties.
@@ -18,13 +23,28 @@ public class Product implements Serializable {
      * @param productId   The unique identifier of the product.
      * @param productName The name of the product.
      * @param quantity    The available quantity of the product.
-     * @param price       The price of the product.
+     * @param price       The price of the product, rounded to the nearest cent.
      */
     public Product(int productId, String productName, int quantity, double price) {
         this.productId = productId;
         this.productName = productName;
         this.quantity = quantity;
-        this.price = price;
+        this.priceCents = Money.fromDouble(price);
+    }
+
+    /**
+     * Creates a new Product with a price given in cents.
+     *
+     * @param productId   The unique identifier of the product.
+     * @param productName The name of the product.
+     * @param quantity    The available quantity of the product.
+     * @param priceCents  The price of the product, in cents.
+     * @return The product.
+     */
+    public static Product withPriceCents(int productId, String productName, int quantity, long priceCents) {
+        Product product = new Product(productId, productName, quantity, 0);
+        product.priceCents = priceCents;
+        return product;
     }
 
     /**
@@ -37,11 +57,16 @@ public class Product implements Serializable {
     }
 
     /**
-     * Sets the unique identifier of the product.
+     * Sets the unique identifier of the product. The ID of a product that has been added to
+     * an inventory cannot be changed, since the inventory looks the product up by its ID.
      *
      * @param productId The new product ID.
+     * @throws IllegalStateException If the product belongs to an inventory.
      */
     public void setProductId(int productId) {
+        if (inventorySystem != null) {
+            throw new IllegalStateException("The ID of a product in an inventory cannot be changed.");
+        }
         this.productId = productId;
     }
 
@@ -61,6 +86,10 @@ public class Product implements Serializable {
      */
     public void setProductName(String productName) {
         this.productName = productName;
+        if (inventorySystem != null) {
+            inventorySystem.productRenamed(this);
+        }
+        notifyChanged();
     }
 
     /**
@@ -80,11 +109,53 @@ public class Product implements Serializable {
     public void setQuantity(int quantity) {
         if (quantity >= 0) {
             this.quantity = quantity;
+            notifyChanged();
         } else {
             System.out.println("Invalid quantity. Please provide a non-negative value.");
         }
     }
 
+    /**
+     * Atomically takes the given amount from the available quantity.
+     * The quantity never drops below zero, even when called concurrently.
+     *
+     * @param amount The quantity to reserve.
+     * @return True if the quantity was reserved, false if there is not enough stock.
+     */
+    public boolean reserveQuantity(int amount) {
+        if (amount < 0) {
+            return false;
+        }
+        while (true) {
+            int current = quantity;
+            if (current < amount) {
+                return false;
+            }
+            if (QUANTITY.compareAndSet(this, current, current - amount)) {
+                notifyChanged();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Atomically returns the given amount to the available quantity.
+     *
+     * @param amount The quantity to release.
+     * @throws ArithmeticException If the quantity would overflow; the quantity is left unchanged.
+     */
+    public void releaseQuantity(int amount) {
+        if (amount <= 0) {
+            return;
+        }
+        while (true) {
+            int current = quantity;
+            if (QUANTITY.compareAndSet(this, current, Math.addExact(current, amount))) {
+                notifyChanged();
+                return;
+            }
+        }
+    }
 
     /**
      * Retrieves the price of the product.
@@ -92,29 +163,96 @@ public class Product implements Serializable {
      * @return The product's price.
      */
     public double getPrice() {
-        return price;
+        return Money.toDouble(priceCents);
+    }
+
+    /**
+     * Retrieves the price of the product in cents.
+     *
+     * @return The product's price, in cents.
+     */
+    public long getPriceCents() {
+        return priceCents;
     }
 
     /**
      * Sets the price of the product.
      *
-     * @param price The new price of the product.
+     * @param price The new price of the product, rounded to the nearest cent.
      */
     public void setPrice(double price) {
         if (price > 0) {
-            this.price = price;
+            setPriceCents(Money.fromDouble(price));
         } else {
             System.out.println("Invalid price. Please provide a positive value.");
         }
     }
 
+    /**
+     * Sets the price of the product in cents.
+     *
+     * @param priceCents The new price of the product, in cents.
+     */
+    public void setPriceCents(long priceCents) {
+        if (priceCents > 0) {
+            this.priceCents = priceCents;
+            notifyChanged();
+        } else {
+            System.out.println("Invalid price. Please provide a positive value.");
+        }
+    }
+
+    /**
+     * Sets the inventory that should be notified when this product changes,
+     * so that it can save only the products that were modified.
+     *
+     * @param inventorySystem The inventory containing this product.
+     */
+    void setInventorySystem(InventorySystem inventorySystem) {
+        this.inventorySystem = inventorySystem;
+    }
+
+    /**
+     * Notifies the owning inventory, if any, that this product has changed.
+     */
+    private void notifyChanged() {
+        if (inventorySystem != null) {
+            inventorySystem.productChanged(this);
+        }
+    }
+
     /**
      * Calculates the total cost of the product based on its quantity and price.
      *
      * @return The total cost of the product.
      */
     public double totalCost() {
-        return quantity * price;
+        return Money.toDouble(totalCostCents());
+    }
+
+    /**
+     * Calculates the total cost of the product in cents.
+     *
+     * @return The total cost of the product, in cents.
+     * @throws ArithmeticException If the total overflows.
+     */
+    public long totalCostCents() {
+        return Money.multiply(priceCents, quantity);
+    }
+
+    /**
+     * Appends the product's details to a builder, in the same form as {@link #toString()}.
+     * Listings reuse one builder for many products instead of formatting a new string for each.
+     *
+     * @param sb The builder to append to.
+     * @return The builder.
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append("Product [ID: ").append(productId)
+                .append(", Name: ").append(productName)
+                .append(", Quantity: ").append(quantity)
+                .append(", Price: ");
+        return Money.appendTo(sb, priceCents).append(']');
     }
 
     /**
@@ -124,6 +262,6 @@ public class Product implements Serializable {
      */
     @Override
     public String toString() {
-        return String.format("Product [ID: %d, Name: %s, Quantity: %d, Price: %.2f]", productId, productName, quantity, price);
+        return appendTo(new StringBuilder(64)).toString();
     }
 }
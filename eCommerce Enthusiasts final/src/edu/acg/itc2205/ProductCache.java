@@ -0,0 +1,248 @@
+package edu.acg.itc2205;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * The ProductCache class keeps a bounded number of recently used products in memory in
+ * front of a ProductStore. Eviction is segmented LRU: a product read once enters a
+ * probation segment, and only a second read moves it to the protected segment, so a scan
+ * over the whole catalog cannot push the frequently viewed products out of the cache.
+ * The cache is split into shards by product ID, each with its own lock. A cache smaller than
+ * the usual number of shards uses fewer shards, so it never holds more than its capacity.
+ * <p>
+ * A product that has been evicted may still be in use, for example by a session that is
+ * taking stock from it. Every loaded product is therefore also tracked through a weak
+ * reference until it is garbage collected, and a product still in use is returned again
+ * instead of being read a second time, so there is never more than one copy of a product
+ * whose changes could overwrite each other in the store.
+ */
+public class ProductCache {
+    private static final int SHARD_COUNT = 16;  // Shards of a cache holding at least this many products; must be a power of two
+    private static final int PROTECTED_PERCENT = 80;  // Share of each shard reserved for products read more than once
+
+    private final Shard[] shards;
+    private final int shardMask;  // The number of shards minus one
+    private final Map<Integer, LiveProduct> liveProducts = new ConcurrentHashMap<>();  // Every loaded product still in use
+    private final ReferenceQueue<Product> collectedProducts = new ReferenceQueue<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    /**
+     * Constructs a ProductCache.
+     *
+     * @param capacity The maximum number of products held by the cache, at least 1.
+     * @throws IllegalArgumentException If the capacity is less than 1.
+     */
+    public ProductCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1: " + capacity);
+        }
+        // Every shard holds at least one product, so use no more shards than products
+        int shardCount = Math.min(SHARD_COUNT, Integer.highestOneBit(capacity));
+        shards = new Shard[shardCount];
+        shardMask = shardCount - 1;
+        for (int i = 0; i < shardCount; i++) {
+            // Spread the remainder over the first shards, so the shards add up to the capacity
+            shards[i] = new Shard(capacity / shardCount + (i < capacity % shardCount ? 1 : 0));
+        }
+    }
+
+    /**
+     * Retrieves a product, reading it with the loader if it is not in memory.
+     *
+     * @param productId The ID of the product.
+     * @param loader    Reads a product from the store; returns null if it does not exist.
+     * @return The product, or null if not found.
+     */
+    public Product get(int productId, IntFunction<Product> loader) {
+        Shard shard = shardFor(productId);
+        Product product = shard.get(productId);
+        if (product != null) {
+            hits.increment();
+            return product;
+        }
+
+        misses.increment();
+        expungeCollectedProducts();
+        Product[] found = new Product[1];  // Held strongly, so it cannot be collected before it is cached
+        liveProducts.compute(productId, (id, existing) -> {
+            found[0] = existing != null ? existing.get() : null;
+            if (found[0] != null) {
+                return existing;  // Evicted, but still in use
+            }
+            long start = System.nanoTime();
+            found[0] = loader.apply(id);
+            loads.increment();
+            loadNanos.add(System.nanoTime() - start);
+            return found[0] != null ? new LiveProduct(found[0], collectedProducts) : null;
+        });
+
+        product = found[0];
+        if (product != null && shard.put(product)) {
+            evictions.increment();
+        }
+        return product;
+    }
+
+    /**
+     * Adds a product that is already in memory, so that later reads return this copy.
+     *
+     * @param product The product to add.
+     */
+    public void put(Product product) {
+        liveProducts.put(product.getProductId(), new LiveProduct(product, collectedProducts));
+        if (shardFor(product.getProductId()).put(product)) {
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Retrieves the number of reads answered from the cache.
+     *
+     * @return The hit count.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Retrieves the number of reads that were not answered from the cache.
+     *
+     * @return The miss count.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Retrieves the share of reads answered from the cache.
+     *
+     * @return The hit rate between 0 and 1, or 0 if nothing has been read.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Retrieves the number of products evicted to make room for others.
+     *
+     * @return The eviction count.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Retrieves the number of products read from the store.
+     *
+     * @return The load count.
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * Retrieves the total time spent reading products from the store.
+     *
+     * @return The total load time, in nanoseconds.
+     */
+    public long getTotalLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    private Shard shardFor(int productId) {
+        return shards[(productId ^ (productId >>> 16)) & shardMask];
+    }
+
+    /**
+     * Forgets the products that have been garbage collected.
+     */
+    private void expungeCollectedProducts() {
+        LiveProduct collected;
+        while ((collected = (LiveProduct) collectedProducts.poll()) != null) {
+            liveProducts.remove(collected.productId, collected);
+        }
+    }
+
+    /**
+     * A weak reference to a loaded product, remembering its ID after it has been collected.
+     */
+    private static class LiveProduct extends WeakReference<Product> {
+        private final int productId;
+
+        LiveProduct(Product product, ReferenceQueue<Product> queue) {
+            super(product, queue);
+            this.productId = product.getProductId();
+        }
+    }
+
+    /**
+     * One shard of the cache, holding the probation and protected segments.
+     */
+    private static class Shard {
+        private final int capacity;
+        private final int protectedCapacity;
+        private final LinkedHashMap<Integer, Product> probation = new LinkedHashMap<>();  // Least recently added first
+        private final LinkedHashMap<Integer, Product> protectedProducts = new LinkedHashMap<>(16, 0.75f, true);  // Least recently used first
+
+        Shard(int capacity) {
+            this.capacity = capacity;
+            this.protectedCapacity = Math.max(1, capacity * PROTECTED_PERCENT / 100);
+        }
+
+        synchronized Product get(int productId) {
+            Product product = protectedProducts.get(productId);
+            if (product != null) {
+                return product;
+            }
+
+            product = probation.remove(productId);
+            if (product != null) {
+                // Read a second time, so promote it, demoting the least recently used protected product
+                protectedProducts.put(productId, product);
+                if (protectedProducts.size() > protectedCapacity) {
+                    Iterator<Map.Entry<Integer, Product>> eldest = protectedProducts.entrySet().iterator();
+                    Map.Entry<Integer, Product> demoted = eldest.next();
+                    eldest.remove();
+                    probation.put(demoted.getKey(), demoted.getValue());
+                }
+            }
+            return product;
+        }
+
+        /**
+         * Adds a product to the probation segment.
+         *
+         * @return True if another product was evicted to make room.
+         */
+        synchronized boolean put(Product product) {
+            if (protectedProducts.containsKey(product.getProductId())) {
+                protectedProducts.put(product.getProductId(), product);
+                return false;
+            }
+            probation.put(product.getProductId(), product);
+            if (probation.size() + protectedProducts.size() <= capacity) {
+                return false;
+            }
+
+            Map<Integer, Product> victims = probation.isEmpty() ? protectedProducts : probation;
+            Iterator<Integer> eldest = victims.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package edu.acg.itc2205;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * The ProductIndex class holds the products of an inventory by ID and in the order they
+ * were added. Lookups and listings never take a lock, so browsing sessions do not wait
+ * for a warehouse manager adding products.
+ * <p>
+ * Products are looked up in a ConcurrentHashMap. For listing, they are also appended to
+ * an array whose filled length is published through a volatile field: a reader takes the
+ * length once and sees every product added before that point, while products added during
+ * the listing are left for the next one. Products are never removed; a reload replaces
+ * the whole index instead.
+ */
+public class ProductIndex {
+    private final Map<Integer, Product> productsById = new ConcurrentHashMap<>();
+    private volatile Product[] productsInOrder = new Product[16];
+    private volatile int size;  // Products published in productsInOrder
+
+    /**
+     * Retrieves a product by ID.
+     *
+     * @param productId The ID of the product.
+     * @return The product, or null if not found.
+     */
+    public Product get(int productId) {
+        return productsById.get(productId);
+    }
+
+    /**
+     * Checks whether a product with the given ID is in the index.
+     *
+     * @param productId The ID of the product.
+     * @return True if the product is in the index, false otherwise.
+     */
+    public boolean containsKey(int productId) {
+        return productsById.containsKey(productId);
+    }
+
+    /**
+     * Adds a product unless a product with the same ID is already in the index.
+     * Concurrent additions are serialized; lookups and listings are not blocked.
+     *
+     * @param product The product to add.
+     * @return The product already in the index with the same ID, or null if the product was added.
+     */
+    public synchronized Product putIfAbsent(Product product) {
+        Product existing = productsById.putIfAbsent(product.getProductId(), product);
+        if (existing != null) {
+            return existing;
+        }
+
+        Product[] array = productsInOrder;
+        if (size == array.length) {
+            Product[] larger = new Product[array.length * 2];
+            System.arraycopy(array, 0, larger, 0, size);
+            productsInOrder = larger;
+            array = larger;
+        }
+        array[size] = product;
+        size = size + 1;  // Publishes the product to readers of size
+        return null;
+    }
+
+    /**
+     * Retrieves the number of products in the index.
+     *
+     * @return The number of products.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Performs an action for every product, in the order the products were added.
+     * Products added while the listing runs are not included.
+     *
+     * @param action The action to perform.
+     */
+    public void forEach(Consumer<Product> action) {
+        int count = size;  // Read before the array, so every element below count is visible
+        Product[] array = productsInOrder;
+        for (int i = 0; i < count; i++) {
+            action.accept(array[i]);
+        }
+    }
+
+    /**
+     * Streams the products in the order they were added. Like {@link #forEach(Consumer)},
+     * the stream covers the products added before it was created.
+     *
+     * @return A lazy stream of the products.
+     */
+    public Stream<Product> stream() {
+        int count = size;
+        return Arrays.stream(productsInOrder, 0, count);
+    }
+}
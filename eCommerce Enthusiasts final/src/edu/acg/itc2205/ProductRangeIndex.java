@@ -0,0 +1,120 @@
+package edu.acg.itc2205;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.ToLongFunction;
+
+/**
+ * The ProductRangeIndex class keeps product IDs sorted by one numeric attribute, such as
+ * price in cents or quantity, so that range and top-K queries visit only the products they return.
+ * Entries are kept in a skip list ordered by value and then by ID. Updates to different
+ * products run in parallel; updates to the same product are applied one at a time and
+ * always index the product's latest value.
+ */
+public class ProductRangeIndex {
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong((Entry e) -> e.value)
+            .thenComparingInt(e -> e.productId);
+
+    private final ToLongFunction<Product> attribute;
+    private final NavigableSet<Entry> sorted = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();  // The current entry of each product
+
+    /**
+     * Constructs an empty ProductRangeIndex.
+     *
+     * @param attribute The attribute the products are sorted by.
+     */
+    public ProductRangeIndex(ToLongFunction<Product> attribute) {
+        this.attribute = attribute;
+    }
+
+    /**
+     * Indexes a product under the current value of the attribute, replacing its previous entry.
+     *
+     * @param product The product that was added or changed.
+     */
+    public void update(Product product) {
+        // The value is read inside compute, so the last of several concurrent updates indexes the latest value
+        entries.compute(product.getProductId(), (productId, old) -> {
+            long value = attribute.applyAsLong(product);
+            if (old != null) {
+                if (old.value == value) {
+                    return old;
+                }
+                sorted.remove(old);
+            }
+            Entry entry = new Entry(value, productId);
+            sorted.add(entry);
+            return entry;
+        });
+    }
+
+    /**
+     * Indexes a product under the given value unless it is already indexed. Used when
+     * building the index, so that an entry written by a concurrent update is kept.
+     *
+     * @param productId The ID of the product.
+     * @param value     The value of the attribute.
+     */
+    public void putIfAbsent(int productId, long value) {
+        entries.computeIfAbsent(productId, id -> {
+            Entry entry = new Entry(value, id);
+            sorted.add(entry);
+            return entry;
+        });
+    }
+
+    /**
+     * Finds the products whose value lies in a range, lowest value first.
+     *
+     * @param min   The lowest value, inclusive.
+     * @param max   The highest value, inclusive.
+     * @param limit The maximum number of products to return.
+     * @return The IDs of the products.
+     */
+    public List<Integer> range(long min, long max, int limit) {
+        if (min > max) {
+            return new ArrayList<>();
+        }
+        return first(sorted.subSet(new Entry(min, Integer.MIN_VALUE), true, new Entry(max, Integer.MAX_VALUE), true), limit);
+    }
+
+    /**
+     * Finds the products with the highest values, highest first.
+     *
+     * @param limit The maximum number of products to return.
+     * @return The IDs of the products.
+     */
+    public List<Integer> highest(int limit) {
+        return first(sorted.descendingSet(), limit);
+    }
+
+    private static List<Integer> first(NavigableSet<Entry> entries, int limit) {
+        List<Integer> productIds = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (productIds.size() >= limit) {
+                break;
+            }
+            productIds.add(entry.productId);
+        }
+        return productIds;
+    }
+
+    /**
+     * A product's position in the index.
+     */
+    private static class Entry {
+        private final long value;
+        private final int productId;
+
+        private Entry(long value, int productId) {
+            this.value = value;
+            this.productId = productId;
+        }
+    }
+}
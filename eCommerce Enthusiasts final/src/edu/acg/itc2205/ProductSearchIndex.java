@@ -0,0 +1,219 @@
+package edu.acg.itc2205;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The ProductSearchIndex class finds products by the words in their names. It is an
+ * inverted index from lower-case name tokens to product IDs, kept in a sorted map so
+ * that a query word also matches every token it is a prefix of; "graph" finds
+ * "Graphics Card". Queries read the index without locking; changes are serialized.
+ */
+public class ProductSearchIndex {
+    private final NavigableMap<String, Set<Integer>> productIdsByToken = new ConcurrentSkipListMap<>();
+    private final Map<Integer, String[]> indexedTokens = new ConcurrentHashMap<>();  // The name tokens each product is indexed under
+
+    /**
+     * Indexes a product under its name, replacing the name it was indexed under before.
+     *
+     * @param productId   The ID of the product.
+     * @param productName The product's current name.
+     */
+    public synchronized void put(int productId, String productName) {
+        String[] tokens = tokenize(productName).toArray(new String[0]);
+        String[] oldTokens = indexedTokens.put(productId, tokens);
+        if (oldTokens != null) {
+            for (String token : oldTokens) {
+                Set<Integer> ids = productIdsByToken.get(token);
+                if (ids != null) {
+                    ids.remove(productId);
+                    if (ids.isEmpty()) {
+                        productIdsByToken.remove(token);
+                    }
+                }
+            }
+        }
+        for (String token : tokens) {
+            productIdsByToken.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(productId);
+        }
+    }
+
+    /**
+     * Finds the products whose names contain every word of the query, as a whole word or
+     * as the start of one. Results are ranked by how well they match: exact word matches
+     * before prefix matches, names starting with the query's first word first, then names
+     * with fewer letters, then lower IDs.
+     *
+     * @param query    The words to search for.
+     * @param offset   The number of ranked results to skip.
+     * @param pageSize The maximum number of results to return.
+     * @return The IDs of the matching products on the requested page, best match first.
+     */
+    public List<Integer> search(String query, int offset, int pageSize) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || offset < 0 || pageSize <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Drive the search with the word matching the fewest products; the others are checked per candidate
+        Collection<Set<Integer>> driver = null;
+        long driverSize = Long.MAX_VALUE;
+        for (String queryToken : queryTokens) {
+            Collection<Set<Integer>> matches = prefixRange(queryToken).values();
+            long size = 0;
+            for (Set<Integer> ids : matches) {
+                size += ids.size();
+            }
+            if (size < driverSize) {
+                driver = matches;
+                driverSize = size;
+            }
+        }
+        if (driverSize == 0) {
+            return Collections.emptyList();
+        }
+        Collection<Integer> candidates;
+        if (driver.size() == 1) {
+            candidates = driver.iterator().next();
+        } else {
+            candidates = new HashSet<>();  // A product may have several tokens with the prefix
+            for (Set<Integer> ids : driver) {
+                candidates.addAll(ids);
+            }
+        }
+
+        // Keep the best offset + pageSize matches, with the worst of them at the head of the queue
+        int wanted = (int) Math.min(Integer.MAX_VALUE, (long) offset + pageSize);
+        Comparator<Match> ranking = Comparator.comparingInt((Match m) -> -m.score)
+                .thenComparingInt(m -> m.nameLength)
+                .thenComparingInt(m -> m.productId);
+        PriorityQueue<Match> best = new PriorityQueue<>(ranking.reversed());
+        for (Integer productId : candidates) {
+            String[] nameTokens = indexedTokens.get(productId);
+            int score = nameTokens == null ? -1 : score(queryTokens, nameTokens);
+            if (score < 0) {
+                continue;
+            }
+            Match match = new Match(productId, score, nameLength(nameTokens));
+            if (best.size() == wanted && ranking.compare(match, best.peek()) >= 0) {
+                continue;  // Not better than the worst match kept
+            }
+            best.add(match);
+            if (best.size() > wanted) {
+                best.poll();
+            }
+        }
+
+        List<Match> ranked = new ArrayList<>(best);
+        ranked.sort(ranking);
+        List<Integer> page = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            page.add(ranked.get(i).productId);
+        }
+        return page;
+    }
+
+    /**
+     * Retrieves the number of indexed products.
+     *
+     * @return The number of products.
+     */
+    public int size() {
+        return indexedTokens.size();
+    }
+
+    /**
+     * Scores how well a product name matches a query.
+     *
+     * @param queryTokens The words of the query.
+     * @param nameTokens  The words of the product name.
+     * @return The score, or -1 if a query word matches no word of the name.
+     */
+    private static int score(List<String> queryTokens, String[] nameTokens) {
+        int score = 0;
+        for (String queryToken : queryTokens) {
+            int best = -1;
+            for (String nameToken : nameTokens) {
+                if (nameToken.equals(queryToken)) {
+                    best = 2;
+                    break;
+                }
+                if (nameToken.startsWith(queryToken)) {
+                    best = 1;
+                }
+            }
+            if (best < 0) {
+                return -1;
+            }
+            score += best;
+        }
+        if (nameTokens[0].startsWith(queryTokens.get(0))) {
+            score++;
+        }
+        return score;
+    }
+
+    private static int nameLength(String[] nameTokens) {
+        int length = 0;
+        for (String token : nameTokens) {
+            length += token.length();
+        }
+        return length;
+    }
+
+    /**
+     * Retrieves the index entries for every token that starts with the given prefix.
+     *
+     * @param prefix The prefix.
+     * @return The matching part of the index.
+     */
+    private NavigableMap<String, Set<Integer>> prefixRange(String prefix) {
+        return productIdsByToken.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     *
+     * @param text The text to split.
+     * @return The words, in order.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * A matching product and its rank.
+     */
+    private static class Match {
+        private final int productId;
+        private final int score;
+        private final int nameLength;
+
+        private Match(int productId, int score, int nameLength) {
+            this.productId = productId;
+            this.score = score;
+            this.nameLength = nameLength;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package edu.acg.itc2205;
+
+/**
+ * The ProductStore interface is implemented by compact product storage that keeps products
+ * as records rather than as Product objects. The InventorySystem reads a record into a
+ * Product only when the product is accessed, and keeps changed products in memory until
+ * they are saved.
+ */
+public interface ProductStore {
+    /**
+     * Retrieves the number of products in the store.
+     *
+     * @return The product count.
+     */
+    int size();
+
+    /**
+     * Retrieves the ID of the product stored at the given position.
+     *
+     * @param recordNumber The position of the product, in insertion order.
+     * @return The product's ID.
+     */
+    int productIdAt(int recordNumber);
+
+    /**
+     * Retrieves the name of the product stored at the given position, without reading
+     * the rest of the product.
+     *
+     * @param recordNumber The position of the product, in insertion order.
+     * @return The product's name.
+     */
+    String productNameAt(int recordNumber);
+
+    /**
+     * Reads the product stored at the given position.
+     *
+     * @param recordNumber The position of the product, in insertion order.
+     * @return A new Product with the stored values.
+     */
+    Product productAt(int recordNumber);
+
+    /**
+     * Checks whether the store contains a product.
+     *
+     * @param productId The ID of the product.
+     * @return True if the product is stored, false otherwise.
+     */
+    boolean contains(int productId);
+
+    /**
+     * Reads a product by ID.
+     *
+     * @param productId The ID of the product to read.
+     * @return A new Product with the stored values, or null if not found.
+     */
+    Product read(int productId);
+}
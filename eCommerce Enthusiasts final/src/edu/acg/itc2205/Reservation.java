@@ -0,0 +1,97 @@
+package edu.acg.itc2205;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Reservation class represents stock held for a cart for a limited time.
+ * A reservation is settled exactly once: it is either released back into the
+ * inventory, expired by the ReservationScheduler, or committed by a checkout.
+ */
+public class Reservation implements Delayed {
+    private static final int PENDING = 0;
+    private static final int SETTLED = 1;
+
+    private final int productId;
+    private final int quantity;
+    private final long expiresAt;  // System.nanoTime() value at which the hold expires
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private volatile boolean expired;
+
+    /**
+     * Constructs a Reservation for stock that has already been taken from the inventory.
+     *
+     * @param productId The ID of the reserved product.
+     * @param quantity  The reserved quantity.
+     * @param ttlMillis How long the stock is held, in milliseconds.
+     */
+    Reservation(int productId, int quantity, long ttlMillis) {
+        this.productId = productId;
+        this.quantity = quantity;
+        this.expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Retrieves the ID of the reserved product.
+     *
+     * @return The product ID.
+     */
+    public int getProductId() {
+        return productId;
+    }
+
+    /**
+     * Retrieves the reserved quantity.
+     *
+     * @return The quantity.
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Checks whether the hold expired and its stock went back into the inventory.
+     *
+     * @return True if the reservation expired, false otherwise.
+     */
+    public boolean isExpired() {
+        return expired;
+    }
+
+    /**
+     * Checks whether the reservation has been released, expired or committed.
+     *
+     * @return True if the reservation is settled, false if it is still pending.
+     */
+    boolean isSettled() {
+        return state.get() == SETTLED;
+    }
+
+    /**
+     * Settles the reservation if it is still pending.
+     *
+     * @param expire True if the reservation is being settled because it expired.
+     * @return True if this call settled the reservation, false if it was already settled.
+     */
+    boolean settle(boolean expire) {
+        if (!state.compareAndSet(PENDING, SETTLED)) {
+            return false;
+        }
+        expired = expire;
+        return true;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(expiresAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        if (other instanceof Reservation) {
+            return Long.compare(expiresAt - ((Reservation) other).expiresAt, 0);
+        }
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+}
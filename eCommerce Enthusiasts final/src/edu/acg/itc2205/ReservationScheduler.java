@@ -0,0 +1,200 @@
+package edu.acg.itc2205;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The ReservationScheduler class holds stock for carts for a limited time. All pending
+ * reservations wait in one DelayQueue, and a single background thread returns the stock
+ * of expired reservations to the inventory in batches, one update per product.
+ * <p>
+ * Released and committed reservations are not removed from the queue one by one, since
+ * each removal scans the whole queue under its lock. They stay queued, are skipped when
+ * they expire, and are dropped together once enough of them have built up.
+ */
+public class ReservationScheduler {
+    private static final int MAX_BATCH_SIZE = 1024;  // Expired reservations released together
+    static final int COMPACTION_THRESHOLD = 1024;  // Settled reservations queued before the queue is compacted
+
+    private final InventorySystem inventorySystem;
+    private final long ttlMillis;
+    private final DelayQueue<Reservation> pending = new DelayQueue<>();
+    private final AtomicInteger settledInQueue = new AtomicInteger();  // Released or committed since the last compaction
+    private final ReadWriteLock compactionLock = new ReentrantReadWriteLock();  // Keeps holds out of a compaction
+    private Thread expiryThread;  // Started on the first reservation
+
+    /**
+     * Constructs a ReservationScheduler for the given inventory.
+     *
+     * @param inventorySystem The inventory the stock is taken from.
+     * @param ttlMillis       How long stock is held, in milliseconds.
+     */
+    public ReservationScheduler(InventorySystem inventorySystem, long ttlMillis) {
+        this.inventorySystem = inventorySystem;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Atomically takes stock from the inventory and holds it until the reservation
+     * is released, committed or expires.
+     *
+     * @param productId The ID of the product.
+     * @param quantity  The quantity to hold.
+     * @return The reservation, or null if the product was not found or has insufficient stock.
+     */
+    public Reservation reserve(int productId, int quantity) {
+        if (!inventorySystem.reserveQuantity(productId, quantity)) {
+            return null;
+        }
+        return hold(productId, quantity);
+    }
+
+    /**
+     * Holds stock that has already been taken from the inventory, for example to
+     * restore a cart's reservations after a failed checkout.
+     *
+     * @param productId The ID of the product.
+     * @param quantity  The quantity already taken.
+     * @return The reservation.
+     */
+    public Reservation hold(int productId, int quantity) {
+        Reservation reservation = new Reservation(productId, quantity, ttlMillis);
+        startExpiryThread();
+        compactionLock.readLock().lock();
+        try {
+            pending.add(reservation);
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        return reservation;
+    }
+
+    /**
+     * Returns the stock of a reservation to the inventory now, unless it has already expired.
+     * The reservation stays queued until its expiry or the next compaction, but is skipped.
+     *
+     * @param reservation The reservation to release.
+     * @return True if the stock was returned by this call, false if the reservation was already settled.
+     */
+    public boolean release(Reservation reservation) {
+        if (!reservation.settle(false)) {
+            return false;
+        }
+        settledInQueue();
+        inventorySystem.releaseQuantity(reservation.getProductId(), reservation.getQuantity());
+        return true;
+    }
+
+    /**
+     * Keeps the stock of a reservation out of the inventory for good, for example when
+     * the cart is checked out.
+     *
+     * @param reservation The reservation to commit.
+     * @return True if the reservation was still held, false if it had already expired or been released.
+     */
+    public boolean commit(Reservation reservation) {
+        if (!reservation.settle(false)) {
+            return false;
+        }
+        settledInQueue();
+        return true;
+    }
+
+    /**
+     * Counts a reservation settled before its expiry, and compacts the queue once settled
+     * reservations make up more than half of it and there are at least
+     * {@link #COMPACTION_THRESHOLD} of them, so each compaction is paid for by the
+     * settlements before it.
+     */
+    private void settledInQueue() {
+        int settled = settledInQueue.incrementAndGet();
+        if (settled >= COMPACTION_THRESHOLD && settled * 2 > pending.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rebuilds the queue from its pending reservations. Holds wait for the rebuild; a
+     * reservation the expiry thread takes meanwhile may be queued again, which is harmless
+     * since it can only be settled once.
+     */
+    private void compact() {
+        if (!compactionLock.writeLock().tryLock()) {
+            return;  // Another thread is already compacting
+        }
+        try {
+            settledInQueue.set(0);
+            Reservation[] queued = pending.toArray(new Reservation[0]);
+            pending.clear();
+            for (Reservation reservation : queued) {
+                if (!reservation.isSettled()) {
+                    pending.add(reservation);
+                }
+            }
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of queued reservations, including settled ones that have not
+     * been compacted away yet.
+     *
+     * @return The number of queued reservations.
+     */
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Starts the background thread that expires reservations, if it is not running yet.
+     */
+    private synchronized void startExpiryThread() {
+        if (expiryThread == null) {
+            expiryThread = new Thread(this::expireReservations, "reservation-expiry");
+            expiryThread.setDaemon(true);
+            expiryThread.start();
+        }
+    }
+
+    /**
+     * Waits for reservations to expire and returns their stock to the inventory. Reservations
+     * that expire together are released as one batch, summed per product.
+     */
+    private void expireReservations() {
+        List<Reservation> expired = new ArrayList<>();
+        Map<Integer, Integer> releasedQuantities = new HashMap<>();
+
+        try {
+            while (true) {
+                expired.add(pending.take());
+                pending.drainTo(expired, MAX_BATCH_SIZE - 1);
+
+                for (Reservation reservation : expired) {
+                    if (reservation.settle(true)) {
+                        releasedQuantities.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+                    }
+                }
+                releasedQuantities.forEach((productId, quantity) -> {
+                    try {
+                        inventorySystem.releaseQuantity(productId, quantity);
+                    } catch (ArithmeticException e) {
+                        // Keep expiring the other reservations
+                        System.err.println("Could not return " + quantity + " of product " + productId + ": " + e.getMessage());
+                    }
+                });
+
+                expired.clear();
+                releasedQuantities.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
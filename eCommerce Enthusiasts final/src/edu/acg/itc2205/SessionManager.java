@@ -0,0 +1,190 @@
+package edu.acg.itc2205;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SessionManager class issues and validates session tokens. Sessions are indexed by
+ * token in a concurrent map, so validating a token is a single lookup, and a session
+ * that goes unused for longer than the idle timeout is ended.
+ * <p>
+ * Every session waits in one DelayQueue, ordered by the time it would expire if it were
+ * not used again. A single background thread takes sessions as they come due and either
+ * ends them or, if they were used in the meantime, queues them again for their new
+ * deadline. Validating a token therefore only records the time, and never touches the queue.
+ */
+public class SessionManager {
+    private static final int TOKEN_BYTES = 16;
+    private static final int MAX_BATCH_SIZE = 1024;  // Sessions taken from the queue together
+
+    private final long idleTimeoutNanos;
+    private final int maxSessions;
+    private final Map<String, UserSession> sessions = new ConcurrentHashMap<>();
+    private final DelayQueue<UserSession> expiryQueue = new DelayQueue<>();
+    private final SecureRandom random = new SecureRandom();
+    private Thread expiryThread;  // Started on the first session
+
+    /**
+     * Constructs a SessionManager.
+     *
+     * @param idleTimeoutMillis How long a session may go unused before it ends, in milliseconds.
+     * @param maxSessions       The maximum number of sessions open at once.
+     */
+    public SessionManager(long idleTimeoutMillis, int maxSessions) {
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Opens a session for an authenticated user, which ends once it goes unused for the idle timeout.
+     *
+     * @param user            The authenticated user.
+     * @param inventorySystem The inventory the session's operations work on.
+     * @return The new session.
+     * @throws RejectedExecutionException If the maximum number of sessions are already open.
+     */
+    public UserSession createSession(User user, InventorySystem inventorySystem) {
+        return createSession(user, inventorySystem, true);
+    }
+
+    /**
+     * Opens a session for an authenticated user. A session that does not expire stays open
+     * until it is ended, which suits a console menu that holds the session for as long as
+     * it runs and never looks its token up.
+     *
+     * @param user            The authenticated user.
+     * @param inventorySystem The inventory the session's operations work on.
+     * @param expires         True if the session ends once it goes unused for the idle timeout.
+     * @return The new session.
+     * @throws RejectedExecutionException If the maximum number of sessions are already open.
+     */
+    public UserSession createSession(User user, InventorySystem inventorySystem, boolean expires) {
+        if (sessions.size() >= maxSessions) {
+            throw new RejectedExecutionException("Too many open sessions");
+        }
+
+        long now = System.nanoTime();
+        UserSession session;
+        do {
+            session = new UserSession(newToken(), user, inventorySystem, expires, now);
+        } while (sessions.putIfAbsent(session.getToken(), session) != null);
+
+        if (expires) {
+            session.setExpiryDeadline(now + idleTimeoutNanos);
+            startExpiryThread();
+            expiryQueue.add(session);
+        }
+        return session;
+    }
+
+    /**
+     * Retrieves the session for a token and records that it was used.
+     *
+     * @param token The session token.
+     * @return The session, or null if the token is unknown or the session has ended.
+     */
+    public UserSession getSession(String token) {
+        UserSession session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (session.expires() && now - session.getLastAccessed() >= idleTimeoutNanos) {
+            endSession(session);  // Idle, but not yet taken from the queue
+            return null;
+        }
+        session.touch(now);
+        return session.isEnded() ? null : session;  // Ended concurrently by the expiry thread
+    }
+
+    /**
+     * Ends the session for a token, for example when the user logs out.
+     *
+     * @param token The session token.
+     * @return True if the session was open, false otherwise.
+     */
+    public boolean endSession(String token) {
+        UserSession session = sessions.get(token);
+        return session != null && endSession(session);
+    }
+
+    /**
+     * Retrieves the number of open sessions.
+     *
+     * @return The number of sessions.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Removes a session and releases its cart. An ended session stays in the expiry queue
+     * until its deadline and is then dropped.
+     *
+     * @param session The session to end.
+     * @return True if this call ended the session, false if it had already ended.
+     */
+    private boolean endSession(UserSession session) {
+        if (!sessions.remove(session.getToken(), session)) {
+            return false;
+        }
+        session.end();
+        return true;
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Starts the background thread that expires sessions, if it is not running yet.
+     */
+    private synchronized void startExpiryThread() {
+        if (expiryThread == null) {
+            expiryThread = new Thread(this::expireSessions, "session-expiry");
+            expiryThread.setDaemon(true);
+            expiryThread.start();
+        }
+    }
+
+    /**
+     * Waits for sessions to come due and ends those that have been idle for the whole
+     * timeout. Sessions used since they were queued are queued again for their new deadline.
+     */
+    private void expireSessions() {
+        List<UserSession> due = new ArrayList<>();
+
+        try {
+            while (true) {
+                due.add(expiryQueue.take());
+                expiryQueue.drainTo(due, MAX_BATCH_SIZE - 1);
+
+                long now = System.nanoTime();
+                for (UserSession session : due) {
+                    if (session.isEnded()) {
+                        continue;
+                    }
+                    long deadline = session.getLastAccessed() + idleTimeoutNanos;
+                    if (deadline - now > 0) {
+                        session.setExpiryDeadline(deadline);
+                        expiryQueue.add(session);
+                    } else {
+                        endSession(session);
+                    }
+                }
+                due.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package edu.acg.itc2205;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The SessionServer class serves many customer and warehouse manager sessions over TCP,
+ * all sharing one user store and one InventorySystem. Each connection is handled on its
+ * own thread, using a virtual thread when the JDK supports them.
+ * <p>
+ * A login opens a UserSession, whose token LOGIN returns. The session outlives the
+ * connection: a client that reconnects can RESUME it, cart included, until it has been
+ * unused for the idle timeout. LOGOUT ends it.
+ * <p>
+ * The protocol is line based. The client sends one command per line and every response
+ * ends with a line containing only {@code END}. Commands:
+ * <pre>
+ * LOGIN username password
+ * RESUME token                     (token returned by an earlier LOGIN)
+ * PRODUCTS [page]
+ * SEARCH page words...             (Customer)
+ * PRICE min max                    (Customer)
+ * ADD productId quantity           (Customer)
+ * REMOVE productId                 (Customer)
+ * CART                             (Customer)
+ * CHECKOUT                         (Customer)
+ * NEWPRODUCT productId quantity price name   (WarehouseManager)
+ * SUBTRACT productId quantity      (WarehouseManager)
+ * LOWSTOCK threshold               (WarehouseManager)
+ * SAVE                             (WarehouseManager)
+ * METRICS                          (WarehouseManager; Prometheus text format)
+ * LOGOUT
+ * </pre>
+ */
+public class SessionServer {
+    private static final int DEFAULT_PORT = 5050;
+    private static final int PRODUCT_PAGE_SIZE = 20;  // Products listed per PRODUCTS, SEARCH or PRICE command
+    private static final int ACCEPT_BACKLOG = 1024;  // Connections waiting to be accepted; the default of 50 resets clients under load
+
+    private final UserAuthentication userAuth;
+    private final ExecutorService sessionExecutor;
+
+    /**
+     * Constructs a SessionServer that authenticates against the given user store.
+     *
+     * @param userAuth The user store shared by all sessions.
+     */
+    public SessionServer(UserAuthentication userAuth) {
+        this.userAuth = userAuth;
+        this.sessionExecutor = newSessionExecutor();
+    }
+
+    /**
+     * Accepts connections on the given port until the server is stopped.
+     *
+     * @param port The port to listen on.
+     * @throws IOException If the port cannot be opened.
+     */
+    public void serve(int port) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port, ACCEPT_BACKLOG)) {
+            System.out.println("Session server listening on port " + port);
+            while (true) {
+                Socket socket = serverSocket.accept();
+                sessionExecutor.execute(() -> runSession(socket));
+            }
+        }
+    }
+
+    /**
+     * Creates an executor that runs each session on a new virtual thread (JDK 21 and later),
+     * or on a pooled platform thread on older JDKs.
+     *
+     * @return The session executor.
+     */
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Reads and answers the commands of one connection until the client logs out or disconnects.
+     *
+     * @param socket The client connection.
+     */
+    private void runSession(Socket socket) {
+        Connection connection = new Connection();
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                boolean open = connection.handle(line.trim(), out);
+                out.println("END");
+                out.flush();
+                if (!open) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Session error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The state of one client connection.
+     */
+    private class Connection {
+        private String token;  // The token of the connection's session, or null before login
+        private UserSession session;  // The session for the token, validated for each command
+        private InventorySystem inventorySystem;  // The session's inventory, so commands do not go through UserAuthentication
+        private Customer customer;
+        private WarehouseManager warehouseManager;
+
+        /**
+         * Handles one command. Commands of a session are handled one at a time, even when
+         * several connections have resumed it.
+         *
+         * @param command The command line sent by the client.
+         * @param out     The stream the response is written to.
+         * @return False if the connection should be closed, true otherwise.
+         */
+        private boolean handle(String command, PrintStream out) {
+            refresh();
+            if (session == null) {
+                return dispatch(command, out);
+            }
+            synchronized (session) {
+                return dispatch(command, out);
+            }
+        }
+
+        /**
+         * Validates the connection's token and looks up its session again, so a session
+         * that expired or was logged out elsewhere is no longer used.
+         */
+        private void refresh() {
+            session = token != null ? userAuth.getSession(token) : null;
+            customer = session != null ? session.getCustomer() : null;
+            warehouseManager = session != null ? session.getWarehouseManager() : null;
+            inventorySystem = session != null ? session.getInventorySystem() : null;
+        }
+
+        private boolean dispatch(String command, PrintStream out) {
+            String[] args = command.split("\\s+", 5);
+            try {
+                switch (args[0].toUpperCase()) {
+                    case "LOGIN":
+                        login(args[1], args[2], out);
+                        return true;
+                    case "RESUME":
+                        resume(args[1], out);
+                        return true;
+                    case "PRODUCTS":
+                        if (requireLogin(out)) {
+                            int page = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+                            inventorySystem.reloadIfModified();
+                            if (inventorySystem.displayProductPage(out, page, PRODUCT_PAGE_SIZE)) {
+                                out.println("More products: PRODUCTS " + (Math.max(1, page) + 1));
+                            }
+                        }
+                        return true;
+                    case "SEARCH":
+                        if (requireCustomer(out)) {
+                            out.print(customer.searchProducts(command.split("\\s+", 3)[2], Integer.parseInt(args[1])));
+                        }
+                        return true;
+                    case "PRICE":
+                        if (requireCustomer(out)) {
+                            inventorySystem.reloadIfModified();
+                            for (Product product : inventorySystem.getProductsInPriceRange(
+                                    Money.parse(args[1]), Money.parse(args[2]), PRODUCT_PAGE_SIZE)) {
+                                out.println(product);
+                            }
+                        }
+                        return true;
+                    case "ADD":
+                        if (requireCustomer(out)) {
+                            out.println(customer.addToCart(Integer.parseInt(args[1]), Integer.parseInt(args[2])));
+                        }
+                        return true;
+                    case "REMOVE":
+                        if (requireCustomer(out)) {
+                            out.println(customer.removeFromCart(Integer.parseInt(args[1])));
+                        }
+                        return true;
+                    case "CART":
+                        if (requireCustomer(out)) {
+                            out.print(customer.getCartContents());
+                        }
+                        return true;
+                    case "CHECKOUT":
+                        if (requireCustomer(out)) {
+                            out.println(customer.checkout());
+                        }
+                        return true;
+                    case "NEWPRODUCT":
+                        if (requireWarehouseManager(out)) {
+                            out.println(warehouseManager.addProduct(Integer.parseInt(args[1]), args[4],
+                                    Integer.parseInt(args[2]), Money.parse(args[3])));
+                        }
+                        return true;
+                    case "SUBTRACT":
+                        if (requireWarehouseManager(out)) {
+                            out.println(warehouseManager.subtractQuantity(Integer.parseInt(args[1]), Integer.parseInt(args[2])));
+                        }
+                        return true;
+                    case "LOWSTOCK":
+                        if (requireWarehouseManager(out)) {
+                            out.print(warehouseManager.lowStockReport(Integer.parseInt(args[1])));
+                        }
+                        return true;
+                    case "SAVE":
+                        if (requireWarehouseManager(out)) {
+                            inventorySystem.writeProductsToFile();
+                            out.println("Products saved.");
+                        }
+                        return true;
+                    case "METRICS":
+                        if (requireWarehouseManager(out)) {
+                            out.print(Metrics.toPrometheusText());
+                        }
+                        return true;
+                    case "LOGOUT":
+                        if (token != null) {
+                            userAuth.logout(token);
+                        }
+                        out.println("Logging out...");
+                        return false;
+                    default:
+                        out.println("Unknown command: " + args[0]);
+                        return true;
+                }
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                out.println("Invalid arguments for " + args[0]);
+                return true;
+            } catch (RuntimeException e) {
+                // Answer the command instead of ending the session without a response
+                System.err.println("Error handling " + args[0] + ": " + e);
+                out.println("ERROR " + args[0] + " failed: " + e.getMessage());
+                return true;
+            }
+        }
+
+        private void login(String username, String password, PrintStream out) {
+            if (token != null) {
+                userAuth.logout(token);  // Logging in again ends the previous session
+                token = null;
+                refresh();
+            }
+
+            UserSession loggedIn;
+            try {
+                loggedIn = userAuth.login(username, password);
+            } catch (RejectedExecutionException e) {
+                out.println("The server is busy. Please try again later.");
+                return;
+            }
+            if (loggedIn == null) {
+                out.println("Incorrect username or password.");
+                return;
+            }
+
+            if (attach(loggedIn, out)) {
+                out.println("Token: " + loggedIn.getToken());
+            }
+        }
+
+        /**
+         * Continues a session opened by an earlier LOGIN, without checking the password.
+         *
+         * @param resumedToken The token returned by LOGIN.
+         * @param out          The stream the response is written to.
+         */
+        private void resume(String resumedToken, PrintStream out) {
+            UserSession resumed = userAuth.getSession(resumedToken);
+            if (resumed == null) {
+                out.println("Unknown or expired token. Please log in again.");
+                return;
+            }
+            attach(resumed, out);
+        }
+
+        /**
+         * Makes a session the connection's session.
+         *
+         * @param attached The session.
+         * @param out      The stream the response is written to.
+         * @return True if the session was attached, false if its user class is not supported.
+         */
+        private boolean attach(UserSession attached, PrintStream out) {
+            User user = attached.getUser();
+            if (attached.getCustomer() == null && attached.getWarehouseManager() == null) {
+                out.println("Invalid user class.");
+                userAuth.logout(attached.getToken());
+                return false;
+            }
+            token = attached.getToken();
+            refresh();
+            out.println("Login successful! Welcome, " + user.getName() + "! Your user class is: " + user.getUserClass());
+            return true;
+        }
+
+        private boolean requireLogin(PrintStream out) {
+            if (session == null) {
+                out.println("Please log in first.");
+                return false;
+            }
+            return true;
+        }
+
+        private boolean requireCustomer(PrintStream out) {
+            if (customer == null) {
+                out.println("This command is only available to customers.");
+                return false;
+            }
+            return true;
+        }
+
+        private boolean requireWarehouseManager(PrintStream out) {
+            if (warehouseManager == null) {
+                out.println("This command is only available to warehouse managers.");
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Starts the session server.
+     *
+     * @param args An optional port number.
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        try (UserAuthentication userAuth = new UserAuthentication()) {
+            new SessionServer(userAuth).serve(port);
+        } catch (IOException e) {
+            System.out.println("Error in session server: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
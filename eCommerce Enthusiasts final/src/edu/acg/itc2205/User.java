@@ -5,7 +5,7 @@ package edu.acg.itc2205;
  */
 public class User {
     private String username;
-    private String password;
+    private volatile String password;  // A PasswordHasher hash, or plain text for users not yet migrated
     private String userClass;
     private String name;
     private String surname;
@@ -51,6 +51,19 @@ public class User {
         return password;
     }
 
+    /**
+     * Sets the stored password of the user.
+     *
+     * @param password The new password, normally a hash from PasswordHasher.
+     */
+    public void setPassword(String password) {
+        if (isValidString(password)) {
+            this.password = password;
+        } else {
+            throw new IllegalArgumentException("Invalid password. Please provide a valid password.");
+        }
+    }
+
     /**
      * Retrieves the user class indicating the role of the user.
      *
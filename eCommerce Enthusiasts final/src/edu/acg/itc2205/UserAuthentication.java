@@ -1,54 +1,136 @@
 package edu.acg.itc2205;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
 
 public class UserAuthentication implements AutoCloseable {
-    private List<User> users;
-    private static final String USER_FILE = "users.txt";
+    private Map<String, User> users;  // Users indexed by username, kept in registration order; guarded by itself
+    private volatile InventorySystem inventorySystem;  // Shared by all sessions, created on first login
+    private static final String USER_FILE = "users.txt";  // Snapshot of all users
+    private static final String USER_LOG_FILE = "users.log";  // Registrations appended since the last snapshot
+    private static final int USER_LOG_COMPACTION_THRESHOLD = 1000;  // Log records that trigger a new snapshot
+    private static final long SESSION_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(15);  // Unused sessions end after this
+    private static final int MAX_SESSIONS = 2000000;  // Sessions open at once
+    private static final LatencyHistogram LOGIN_LATENCY = Metrics.histogram(
+            "auth_login_seconds", "Time taken to check a username and password.");
+    private static final LongAdder LOGIN_FAILURES = Metrics.counter(
+            "auth_login_failures_total", "Logins rejected for an unknown user, a wrong password or a busy server.");
+    private static final LatencyHistogram REGISTER_LATENCY = Metrics.histogram(
+            "auth_register_seconds", "Time taken to register a user, including hashing the password and syncing the log.");
+    private static final LongAdder REGISTER_FAILURES = Metrics.counter(
+            "auth_register_failures_total", "Registrations rejected for a taken username, a busy server or a write error.");
+    private static final LongAdder IO_ERRORS = Metrics.counter(
+            "auth_io_errors_total", "Failures to read or write the user files.");
+
+    // Password hashing is slow on purpose, so at most one hash per core runs at a time
+    private final PasswordHasher passwordHasher = new PasswordHasher(Runtime.getRuntime().availableProcessors());
+    // Logged-in users by session token, so later requests skip the password check
+    private final SessionManager sessionManager = new SessionManager(SESSION_IDLE_TIMEOUT_MILLIS, MAX_SESSIONS);
+
+    private FileOutputStream userLogStream;
+    private Writer userLogWriter;
+    private long appendedLogRecords;  // Records written to the log since it was opened
+    private long syncedLogRecords;  // Records known to be on disk
+    private final Object logSyncLock = new Object();
 
     public UserAuthentication() {
-        users = new ArrayList<>();
+        users = new LinkedHashMap<>();
         loadUsersFromFile();
+        replayUserLog();
     }
 
 
     @Override
     public void close() throws IOException {
-        // Save the users to file before closing
+        // Save the users to file before closing; this also empties the registration log
         saveUsersToFile();
+        closeUserLog();
+        passwordHasher.close();
 
         // Close any other resources, such as file handles
         System.out.println("Closing resources...");
     }
 
     public void registerUser(String username, String password, String userClass, String name, String surname, String contactInfo, String email) {
-        // Check if the username already exists
+        long start = System.nanoTime();
+        try {
+            if (!addUser(username, password, userClass, name, surname, contactInfo, email)) {
+                REGISTER_FAILURES.increment();
+            }
+        } finally {
+            REGISTER_LATENCY.recordSince(start);
+        }
+    }
+
+    // Registers a new user and returns whether the registration succeeded
+    private boolean addUser(String username, String password, String userClass, String name, String surname, String contactInfo, String email) {
         if (getUserByUsername(username) != null) {
             System.out.println("Username already exists. Please choose a different username.");
-            return;
+            return false;
+        }
+
+        // Only the salted hash of the password is kept
+        String passwordHash;
+        try {
+            passwordHash = passwordHasher.hash(password);
+        } catch (RejectedExecutionException e) {
+            System.out.println("The server is busy. Please try again later.");
+            return false;
+        }
+
+        User newUser = new User(username, passwordHash, userClass, name, surname, contactInfo, email);
+        synchronized (users) {
+            // Check if the username already exists
+            if (users.containsKey(username)) {
+                System.out.println("Username already exists. Please choose a different username.");
+                return false;
+            }
+
+            // Add the new user to the index
+            users.put(username, newUser);
         }
 
-        // Create a new user and add it to the list
-        User newUser = new User(username, password, userClass, name, surname, contactInfo, email);
-        users.add(newUser);
-        saveUsersToFile();  // Save the updated user list to the file
+        // Append only the new user to the log instead of rewriting the whole file
+        try {
+            appendToUserLog(newUser);
+        } catch (IOException e) {
+            synchronized (users) {
+                users.remove(username);
+            }
+            IO_ERRORS.increment();
+            System.err.println("Error saving user data to file: " + e.getMessage());
+            return false;
+        }
         System.out.println("User registered successfully. Welcome, " + name + "!");
+
+        if (appendedLogRecords >= USER_LOG_COMPACTION_THRESHOLD) {
+            saveUsersToFile();  // Compact the log into a new snapshot
+        }
+        return true;
     }
 
     public boolean loginUser(String username, String password) {
-        // Check if the username exists
-        User user = getUserByUsername(username);
+        User user = checkLogin(username, password);
         if (user == null) {
-            System.out.println("Username not found. Please register first.");
             return false;
         }
 
-        // Check if the password matches
-        if (!user.getPassword().equals(password)) {
-            System.out.println("Incorrect password. Please try again.");
+        // Open a session for the menu, which ends when the user logs out. The menu never looks
+        // its token up, so the session must not expire while the user is still working in it.
+        UserSession session;
+        try {
+            session = sessionManager.createSession(user, getInventorySystem(), false);
+        } catch (RejectedExecutionException e) {
+            System.out.println("The server is busy. Please try again later.");
             return false;
         }
 
@@ -57,21 +139,116 @@ public class UserAuthentication implements AutoCloseable {
         System.out.println("Login successful! Welcome, " + user.getName() + "! Your user class is: " + userClass);
 
         // Redirect to the appropriate user class functionality based on userClass value
-        redirectUser(userClass, user);
+        try {
+            redirectUser(userClass, session);
+        } finally {
+            sessionManager.endSession(session.getToken());
+        }
 
         return true;
     }
 
-    private void redirectUser(String userClass, User user) {
+    // Checks the credentials of a console login, explaining any failure to the user.
+    // Returns the user, or null if the login is rejected.
+    private User checkLogin(String username, String password) {
+        long start = System.nanoTime();
+        try {
+            // Check if the username exists
+            User user = getUserByUsername(username);
+            if (user == null) {
+                LOGIN_FAILURES.increment();
+                System.out.println("Username not found. Please register first.");
+                return null;
+            }
+
+            // Check if the password matches
+            try {
+                if (!passwordMatches(user, password)) {
+                    LOGIN_FAILURES.increment();
+                    System.out.println("Incorrect password. Please try again.");
+                    return null;
+                }
+            } catch (RejectedExecutionException e) {
+                LOGIN_FAILURES.increment();
+                System.out.println("The server is busy. Please try again later.");
+                return null;
+            }
+            return user;
+        } finally {
+            LOGIN_LATENCY.recordSince(start);
+        }
+    }
+
+    // Checks a username and password and opens a session whose token can be used for later
+    // requests. Returns the session, or null if the credentials are wrong.
+    // Throws RejectedExecutionException if the server is too busy to check the password or open a session.
+    public UserSession login(String username, String password) {
+        User user = authenticate(username, password);
+        return user != null ? sessionManager.createSession(user, getInventorySystem()) : null;
+    }
+
+    // Returns the open session for a token, or null if the token is unknown or the session has expired
+    public UserSession getSession(String token) {
+        return sessionManager.getSession(token);
+    }
+
+    // Ends the session for a token and releases its cart
+    public void logout(String token) {
+        sessionManager.endSession(token);
+    }
+
+    // Checks a username and password without starting a menu, for sessions that are not
+    // driven by the console. Returns the user, or null if the credentials are wrong.
+    // Throws RejectedExecutionException if too many password checks are already waiting.
+    public User authenticate(String username, String password) {
+        long start = System.nanoTime();
+        boolean authenticated = false;
+        try {
+            User user = getUserByUsername(username);
+            authenticated = user != null && passwordMatches(user, password);
+            return authenticated ? user : null;
+        } finally {
+            if (!authenticated) {
+                LOGIN_FAILURES.increment();  // Including a busy server
+            }
+            LOGIN_LATENCY.recordSince(start);
+        }
+    }
+
+    // Checks the password against the stored hash. A password still stored in plain text
+    // is replaced by its hash after the first successful login.
+    private boolean passwordMatches(User user, String password) {
+        String stored = user.getPassword();
+        if (!passwordHasher.verify(password, stored)) {
+            return false;
+        }
+        if (passwordHasher.needsRehash(stored)) {
+            migratePassword(user, password);
+        }
+        return true;
+    }
+
+    // Stores the hash of a password that was kept in plain text or with too few iterations.
+    // The updated record is appended to the log, where it replaces the old one on replay.
+    private void migratePassword(User user, String password) {
+        try {
+            user.setPassword(passwordHasher.hash(password));
+            appendToUserLog(user);
+        } catch (RejectedExecutionException e) {
+            // Keep the old password and migrate on a later login
+        } catch (IOException e) {
+            IO_ERRORS.increment();
+            System.err.println("Error saving user data to file: " + e.getMessage());
+        }
+    }
+
+    private void redirectUser(String userClass, UserSession session) {
         switch (userClass) {
             case "Customer":
-                InventorySystem inventorySystem = new InventorySystem();
-                Customer customer = new Customer(user, inventorySystem);
-                customer.runCustomerFunctionality();
+                session.getCustomer().runCustomerFunctionality();
                 break;
             case "WarehouseManager":
-                WarehouseManager warehouseManager = new WarehouseManager(new InventorySystem());
-                warehouseManager.runWarehouseManagerFunctionality();
+                session.getWarehouseManager().runWarehouseManagerFunctionality();
                 break;
             default:
                 System.out.println("Invalid user class.");
@@ -79,50 +256,202 @@ public class UserAuthentication implements AutoCloseable {
     }
 
 
+    // Returns the inventory shared by every Customer and WarehouseManager session. The products
+    // file is read on first use and re-read only when it changes on disk.
+    InventorySystem getInventorySystem() {
+        InventorySystem inventory = inventorySystem;
+        if (inventory == null) {
+            synchronized (this) {
+                if (inventorySystem == null) {
+                    inventorySystem = new InventorySystem();
+                }
+                return inventorySystem;
+            }
+        }
+        inventory.reloadIfModified();
+        return inventory;
+    }
 
     private User getUserByUsername(String username) {
-        for (User user : users) {
-            if (user.getUsername().equals(username)) {
-                return user;
-            }
+        synchronized (users) {
+            return users.get(username);
         }
-        return null;
     }
 
+    // Writes a snapshot of all users to a temporary file, atomically replaces users.txt with it,
+    // and then empties the registration log, whose records are now part of the snapshot
     private void saveUsersToFile() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(USER_FILE))) {
-            for (User user : users) {
-                writer.println(user.getUsername() + "," + user.getPassword() + "," + user.getUserClass() +
-                        "," + user.getName() + "," + user.getSurname() + "," + user.getContactInfo() + "," + user.getEmail());
+        synchronized (logSyncLock) {
+            synchronized (this) {
+                File snapshot = new File(USER_FILE + ".tmp");
+                try (FileOutputStream out = new FileOutputStream(snapshot);
+                     PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out)))) {
+                    synchronized (users) {
+                        for (User user : users.values()) {
+                            writer.println(formatUser(user));
+                        }
+                    }
+                    writer.flush();
+                    if (writer.checkError()) {
+                        throw new IOException("Could not write " + snapshot);
+                    }
+                    out.getFD().sync();
+                } catch (IOException e) {
+                    IO_ERRORS.increment();
+                    System.err.println("Error saving user data to file: " + e.getMessage());
+                    return;
+                }
+
+                try {
+                    Files.move(snapshot.toPath(), Paths.get(USER_FILE),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    closeUserLog();
+                    new FileOutputStream(USER_LOG_FILE).close();  // Truncate the log
+                    appendedLogRecords = 0;
+                    syncedLogRecords = 0;
+                } catch (IOException e) {
+                    IO_ERRORS.increment();
+                    System.err.println("Error saving user data to file: " + e.getMessage());
+                }
             }
-        } catch (IOException e) {
-            System.err.println("Error saving user data to file: " + e.getMessage());
         }
     }
 
     private void loadUsersFromFile() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(USER_FILE))) {
+        try (Reader reader = new FileReader(USER_FILE)) {
+            CsvTokenizer tokenizer = new CsvTokenizer(reader);
+            while (tokenizer.nextRow()) {
+                if (tokenizer.countFields() == 7) {
+                    User user = parseUser(tokenizer);
+                    users.putIfAbsent(user.getUsername(), user);
+                } else if (!tokenizer.isBlankRow()) {
+                    // Skip the malformed row instead of aborting the whole load
+                    System.err.println("Skipping malformed user in " + USER_FILE + " on line "
+                            + tokenizer.getLineNumber() + ": expected 7 fields");
+                }
+            }
+        } catch (IOException e) {
+            IO_ERRORS.increment();
+            System.err.println("Error loading user data from file: " + e.getMessage());
+        }
+    }
+
+    // Applies the registrations logged since the last snapshot. A record is only used if its
+    // checksum matches, so a line torn by a crash in the middle of an append is ignored.
+    private void replayUserLog() {
+        File logFile = new File(USER_LOG_FILE);
+        if (!logFile.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(logFile))) {
+            CsvTokenizer tokenizer = new CsvTokenizer();
             String line;
             while ((line = reader.readLine()) != null) {
-                String[] userInfo = line.split(",");
-                if (userInfo.length == 7) {
-                    String username = userInfo[0];
-                    String password = userInfo[1];
-                    String userClass = userInfo[2];
-                    String name = userInfo[3];
-                    String surname = userInfo[4];
-                    String contactInfo = userInfo[5];
-                    String email = userInfo[6];
-
-                    User user = new User(username, password, userClass, name, surname, contactInfo, email);
-                    users.add(user);
+                int checksumStart = line.lastIndexOf(',');
+                if (checksumStart < 0 || !line.substring(checksumStart + 1).equals(checksum(line.substring(0, checksumStart)))) {
+                    continue;
+                }
+                tokenizer.reset(line.substring(0, checksumStart));
+                if (tokenizer.countFields() == 7) {
+                    User user = parseUser(tokenizer);
+                    users.put(user.getUsername(), user);
                 }
             }
         } catch (IOException e) {
+            IO_ERRORS.increment();
             System.err.println("Error loading user data from file: " + e.getMessage());
         }
     }
 
+    // Appends one user record to the log and returns once it is on disk. Records appended
+    // by concurrent registrations are synced together by a single fsync.
+    private void appendToUserLog(User user) throws IOException {
+        long record;
+        synchronized (this) {
+            if (userLogWriter == null) {
+                truncateTornRecord(new File(USER_LOG_FILE));
+                userLogStream = new FileOutputStream(USER_LOG_FILE, true);
+                userLogWriter = new BufferedWriter(new OutputStreamWriter(userLogStream));
+            }
+            String line = formatUser(user);
+            userLogWriter.write(line + "," + checksum(line));
+            userLogWriter.write(System.lineSeparator());
+            userLogWriter.flush();
+            record = ++appendedLogRecords;
+        }
+
+        synchronized (logSyncLock) {
+            if (syncedLogRecords >= record) {
+                return;  // Already synced by another registration
+            }
+            long pending;
+            FileOutputStream stream;
+            synchronized (this) {
+                pending = appendedLogRecords;
+                stream = userLogStream;
+            }
+            if (stream == null) {
+                return;  // The log was compacted, so the record is already in the snapshot
+            }
+            stream.getFD().sync();
+            syncedLogRecords = pending;
+        }
+    }
+
+    // Cuts off a record left without its line separator by a crash in the middle of an append.
+    // Otherwise the next record would continue the torn line, fail its checksum on replay,
+    // and be lost although its registration was reported as successful.
+    private static void truncateTornRecord(File logFile) throws IOException {
+        if (!logFile.exists()) {
+            return;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            long end = file.length();
+            while (end > 0) {
+                file.seek(end - 1);
+                if (file.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < file.length()) {
+                file.setLength(end);
+            }
+        }
+    }
+
+    private synchronized void closeUserLog() throws IOException {
+        if (userLogWriter != null) {
+            userLogWriter.close();
+            userLogWriter = null;
+            userLogStream = null;
+        }
+    }
+
+    private static String formatUser(User user) {
+        return user.getUsername() + "," + user.getPassword() + "," + user.getUserClass() +
+                "," + user.getName() + "," + user.getSurname() + "," + user.getContactInfo() + "," + user.getEmail();
+    }
+
+    private static User parseUser(CsvTokenizer tokenizer) {
+        String username = tokenizer.nextRawString();
+        String password = tokenizer.nextRawString();
+        String userClass = tokenizer.nextRawString();
+        String name = tokenizer.nextRawString();
+        String surname = tokenizer.nextRawString();
+        String contactInfo = tokenizer.nextRawString();
+        String email = tokenizer.nextRawString();
+
+        return new User(username, password, userClass, name, surname, contactInfo, email);
+    }
+
+    private static String checksum(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes());
+        return Long.toHexString(crc.getValue());
+    }
+
     public static void main(String[] args) {
         try (UserAuthentication userAuth = new UserAuthentication(); Scanner scanner = new Scanner(System.in)) {
             while (true) {
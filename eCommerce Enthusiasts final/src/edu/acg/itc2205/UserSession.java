@@ -0,0 +1,143 @@
+package edu.acg.itc2205;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The UserSession class represents a logged-in user, identified by an opaque token issued
+ * by the SessionManager. The Customer or WarehouseManager of the session is created on
+ * first use and kept for the life of the session, so a cart survives between requests.
+ * <p>
+ * Callers that use the session from several threads at once should synchronize on it,
+ * because Customer and WarehouseManager are not thread-safe.
+ */
+public class UserSession implements Delayed {
+    private final String token;
+    private final User user;
+    private final InventorySystem inventorySystem;
+    private final boolean expires;  // False for sessions that stay open until they are ended
+    private volatile long lastAccessed;  // System.nanoTime() value of the last validation
+    private long expiryDeadline;  // System.nanoTime() value the expiry queue orders the session by; not changed while queued
+    private Customer customer;  // Created on first use; guarded by this
+    private WarehouseManager warehouseManager;  // Created on first use; guarded by this
+    private volatile boolean ended;
+
+    /**
+     * Constructs a UserSession.
+     *
+     * @param token           The token identifying the session.
+     * @param user            The authenticated user.
+     * @param inventorySystem The inventory the session's operations work on.
+     * @param expires         True if the session ends once it goes unused for the idle timeout.
+     * @param now             The current System.nanoTime() value.
+     */
+    UserSession(String token, User user, InventorySystem inventorySystem, boolean expires, long now) {
+        this.token = token;
+        this.user = user;
+        this.inventorySystem = inventorySystem;
+        this.expires = expires;
+        this.lastAccessed = now;
+    }
+
+    /**
+     * Retrieves the token identifying the session.
+     *
+     * @return The session token.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Retrieves the logged-in user.
+     *
+     * @return The user.
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * Retrieves the inventory the session's operations work on.
+     *
+     * @return The inventory system.
+     */
+    public InventorySystem getInventorySystem() {
+        return inventorySystem;
+    }
+
+    /**
+     * Retrieves the customer functionality of the session.
+     *
+     * @return The Customer, or null if the user is not a customer or the session has ended.
+     */
+    public synchronized Customer getCustomer() {
+        if (customer == null && !ended && user.getUserClass().equals("Customer")) {
+            customer = new Customer(user, inventorySystem);
+        }
+        return ended ? null : customer;
+    }
+
+    /**
+     * Retrieves the warehouse manager functionality of the session.
+     *
+     * @return The WarehouseManager, or null if the user is not a warehouse manager or the session has ended.
+     */
+    public synchronized WarehouseManager getWarehouseManager() {
+        if (warehouseManager == null && !ended && user.getUserClass().equals("WarehouseManager")) {
+            warehouseManager = new WarehouseManager(inventorySystem);
+        }
+        return ended ? null : warehouseManager;
+    }
+
+    /**
+     * Checks whether the session has been ended or expired.
+     *
+     * @return True if the session has ended, false otherwise.
+     */
+    public boolean isEnded() {
+        return ended;
+    }
+
+    boolean expires() {
+        return expires;
+    }
+
+    long getLastAccessed() {
+        return lastAccessed;
+    }
+
+    void touch(long now) {
+        lastAccessed = now;
+    }
+
+    void setExpiryDeadline(long expiryDeadline) {
+        this.expiryDeadline = expiryDeadline;
+    }
+
+    /**
+     * Ends the session, returning the stock held by its cart to the inventory.
+     */
+    synchronized void end() {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        if (customer != null) {
+            customer.logout();
+        }
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(expiryDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        if (other instanceof UserSession) {
+            return Long.compare(expiryDeadline - ((UserSession) other).expiryDeadline, 0);
+        }
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+}
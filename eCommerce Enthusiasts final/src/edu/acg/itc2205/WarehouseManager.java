@@ -1,12 +1,19 @@
 package edu.acg.itc2205;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.InputMismatchException;
+import java.util.List;
 import java.util.Scanner;
 
 /**
  * The WarehouseManager class provides functionality for managing the warehouse inventory.
+ * The inventory operations return their result as a message, so the same operations
+ * serve both the console menu and the SessionServer.
  */
 public class WarehouseManager {
+    private static final int MAX_REPORTED_ERRORS = 20;  // Rejected batch rows printed individually
+    private static final int MAX_REPORTED_PRODUCTS = 50;  // Products listed in a low stock report
     private InventorySystem inventorySystem;
 
     /**
@@ -29,8 +36,10 @@ public class WarehouseManager {
                 System.out.println("1. Display Products");
                 System.out.println("2. Add Product");
                 System.out.println("3. Subtract Quantity");
-                System.out.println("4. Save and Exit");
-                System.out.print("Enter your choice (1-4): ");
+                System.out.println("4. Bulk Import/Adjust from File");
+                System.out.println("5. Low Stock Report");
+                System.out.println("6. Save and Exit");
+                System.out.print("Enter your choice (1-6): ");
 
                 String input = scanner.nextLine();
 
@@ -47,18 +56,24 @@ public class WarehouseManager {
                             subtractQuantity(scanner);
                             break;
                         case 4:
+                            applyBatchFile(scanner);
+                            break;
+                        case 5:
+                            lowStockReport(scanner);
+                            break;
+                        case 6:
                             inventorySystem.writeProductsToFile();
                             System.out.println("Exiting Warehouse Manager. Products saved to file.");
                             break;
                         default:
-                            System.out.println("Invalid choice. Please enter a number between 1 and 4.");
+                            System.out.println("Invalid choice. Please enter a number between 1 and 6.");
                     }
                 } catch (NumberFormatException e) {
                     System.out.println("Invalid input. Please enter a number.");
                     choice = 0; // Set to an invalid choice
                 }
 
-            } while (choice != 4);
+            } while (choice != 6);
 
             // Check for more input before attempting to read
             if (scanner.hasNextLine()) {
@@ -84,12 +99,100 @@ public class WarehouseManager {
         int quantity = scanner.nextInt();
 
         System.out.print("Enter price: ");
-        double price = scanner.nextDouble();
+        long priceCents = Money.parse(scanner.next());
+
+        System.out.println(addProduct(productId, productName, quantity, priceCents));
+    }
+
+    /**
+     * Adds a new product to the warehouse inventory.
+     *
+     * @param productId   The ID of the new product.
+     * @param productName The name of the new product.
+     * @param quantity    The initial quantity.
+     * @param priceCents  The price, in cents.
+     * @return A message describing the result.
+     */
+    public String addProduct(int productId, String productName, int quantity, long priceCents) {
+        if (productName.trim().isEmpty() || productName.indexOf(',') >= 0
+                || productName.indexOf('\n') >= 0 || productName.indexOf('\r') >= 0) {
+            // The name is stored as one comma-separated field of the product file
+            return "Invalid product name. Names cannot be empty or contain commas or line breaks.";
+        }
+        if (quantity < 0) {
+            return "Invalid quantity. The quantity cannot be negative.";
+        }
+        if (priceCents <= 0) {
+            return "Invalid price. The price must be greater than zero.";
+        }
+        if (!inventorySystem.addProduct(Product.withPriceCents(productId, productName, quantity, priceCents))) {
+            return "Product with ID " + productId + " already exists.";
+        }
+        return "Product added: " + productName;
+    }
+
+    /**
+     * Applies a file of product additions and quantity adjustments, reports the rows that
+     * were rejected, and saves the inventory once.
+     *
+     * @param scanner The Scanner used to gather user input.
+     */
+    private void applyBatchFile(Scanner scanner) {
+        System.out.print("Enter batch file name: ");
+        String fileName = scanner.nextLine();
+
+        List<String> errors = new ArrayList<>();
+        try {
+            int applied = inventorySystem.applyBatchFile(fileName, errors);
+            for (String error : errors.subList(0, Math.min(errors.size(), MAX_REPORTED_ERRORS))) {
+                System.out.println("Rejected: " + error);
+            }
+            if (errors.size() > MAX_REPORTED_ERRORS) {
+                System.out.println("... and " + (errors.size() - MAX_REPORTED_ERRORS) + " more rejected rows.");
+            }
+            System.out.println(applied + " rows applied, " + errors.size() + " rows rejected.");
+            inventorySystem.writeProductsToFile();
+        } catch (IOException e) {
+            System.out.println("Error reading batch file: " + e.getMessage());
+        }
+    }
 
-        // Add product
-        inventorySystem.addProduct(new Product(productId, productName, quantity, price));
+    /**
+     * Reports the products whose stock is below a threshold entered by the user.
+     *
+     * @param scanner The Scanner used to gather user input.
+     */
+    private void lowStockReport(Scanner scanner) {
+        System.out.print("Report products with stock below: ");
+        try {
+            int threshold = Integer.parseInt(scanner.nextLine().trim());
+            System.out.print(lowStockReport(threshold));
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid quantity. Please enter a valid integer.");
+        }
+    }
 
-        System.out.println("Product added: " + productName);
+    /**
+     * Lists the products whose stock is below a threshold, lowest stock first.
+     *
+     * @param threshold The quantity below which stock is considered low.
+     * @return The report.
+     */
+    public String lowStockReport(int threshold) {
+        List<Product> lowStock = inventorySystem.getLowStockProducts(threshold, MAX_REPORTED_PRODUCTS + 1);
+        if (lowStock.isEmpty()) {
+            return "No products with stock below " + threshold + "." + System.lineSeparator();
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append("----- Products with stock below ").append(threshold).append(" -----").append(System.lineSeparator());
+        for (Product product : lowStock.subList(0, Math.min(lowStock.size(), MAX_REPORTED_PRODUCTS))) {
+            product.appendTo(report).append(System.lineSeparator());
+        }
+        if (lowStock.size() > MAX_REPORTED_PRODUCTS) {
+            report.append("... and more.").append(System.lineSeparator());
+        }
+        return report.toString();
     }
 
     /**
@@ -116,17 +219,24 @@ public class WarehouseManager {
             }
             int quantityToSubtract = scanner.nextInt();
 
-            // Subtract quantity
-            boolean success = inventorySystem.subtractQuantity(productId, quantityToSubtract);
-
-            if (success) {
-                System.out.println("Quantity subtracted for product ID: " + productId);
-            } else {
-                System.out.println("Failed to subtract quantity. Product not found or insufficient quantity.");
-            }
+            System.out.println(subtractQuantity(productId, quantityToSubtract));
         } catch (InputMismatchException e) {
             System.out.println("Invalid input. Please enter a valid number.");
             scanner.nextLine(); // Consume the invalid input
         }
     }
+
+    /**
+     * Subtracts a quantity from a product in the warehouse inventory.
+     *
+     * @param productId          The ID of the product.
+     * @param quantityToSubtract The quantity to subtract.
+     * @return A message describing the result.
+     */
+    public String subtractQuantity(int productId, int quantityToSubtract) {
+        if (inventorySystem.subtractQuantity(productId, quantityToSubtract)) {
+            return "Quantity subtracted for product ID: " + productId;
+        }
+        return "Failed to subtract quantity. Product not found or insufficient quantity.";
+    }
 }
@@ -0,0 +1,127 @@
+package edu.acg.itc2205;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static edu.acg.itc2205.TestSupport.check;
+
+/**
+ * The CheckoutStressTest class checks that concurrent checkouts of overlapping carts never
+ * oversell, that every placed order is recorded once, that a checkout whose order
+ * cannot be saved returns the stock it took, and that a cart line too large for the cart
+ * total does not keep its stock. The checks run in a child JVM in a scratch
+ * directory, since the order file is relative to the working directory.
+ * Run it with {@code java edu.acg.itc2205.CheckoutStressTest [threads]}.
+ */
+public class CheckoutStressTest {
+    private static final int PRODUCTS = 20;
+    private static final int STOCK = 500;
+    private static final int CART_LINES = 10;
+    private static final int ATTEMPTS_PER_THREAD = 100;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("run")) {
+            overlappingCheckouts(Integer.parseInt(args[1]));
+            unsavedOrder();
+            overflowingCartLine();
+            return;
+        }
+        String threads = args.length > 0 ? args[0] : "32";
+        System.out.print(TestSupport.runJava(Files.createTempDirectory("itc2205-checkout"), CheckoutStressTest.class, "run", threads));
+        System.out.println("CheckoutStressTest passed");
+    }
+
+    /**
+     * Every thread checks out carts of ten consecutive products from a random start, so most
+     * carts share products with carts of other threads, and demand exceeds the stock.
+     */
+    private static void overlappingCheckouts(int threads) throws Exception {
+        InventorySystem inventory = new InventorySystem(TestSupport.writeBinaryCatalog(TestSupport.products(PRODUCTS, STOCK)));
+        AtomicLongArray sold = new AtomicLongArray(PRODUCTS + 1);
+        AtomicInteger orders = new AtomicInteger();
+        AtomicInteger negativeSeen = new AtomicInteger();
+
+        long start = System.nanoTime();
+        TestSupport.runThreads(threads, thread -> {
+            Random random = new Random(thread);
+            for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                Cart cart = new Cart();
+                int first = random.nextInt(PRODUCTS);
+                for (int i = 0; i < CART_LINES; i++) {
+                    cart.add(inventory.getProductById(1 + (first + i) % PRODUCTS), 1 + random.nextInt(3));
+                }
+                if (inventory.checkout(cart, Map.of(), "customer" + thread)) {
+                    orders.incrementAndGet();
+                    for (Product line : cart.getLines()) {
+                        sold.addAndGet(line.getProductId(), line.getQuantity());
+                    }
+                }
+                if (inventory.getProductById(1 + first).getQuantity() < 0) {
+                    negativeSeen.incrementAndGet();
+                }
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        check(negativeSeen.get() == 0, "Stock went negative " + negativeSeen.get() + " times");
+        long soldTotal = 0;
+        for (int productId = 1; productId <= PRODUCTS; productId++) {
+            int quantity = inventory.getProductById(productId).getQuantity();
+            check(quantity >= 0, "Product " + productId + " was oversold: " + quantity);
+            check(quantity + sold.get(productId) == STOCK,
+                    "Product " + productId + " has " + quantity + " left after selling " + sold.get(productId));
+            soldTotal += sold.get(productId);
+        }
+        long recorded = Files.lines(Paths.get("Orders.txt")).count();
+        check(recorded == orders.get(), recorded + " orders recorded for " + orders.get() + " placed");
+        System.out.printf("%d threads placed %d orders (%d units) in %.2f s: %.0f orders/s%n",
+                threads, orders.get(), soldTotal, seconds, orders.get() / seconds);
+    }
+
+    /**
+     * The order file is replaced by a directory, so saving the order fails. The checkout
+     * must report the failure and return the stock it took, but not the stock the cart held.
+     */
+    private static void unsavedOrder() throws Exception {
+        InventorySystem inventory = new InventorySystem(TestSupport.writeBinaryCatalog(TestSupport.products(PRODUCTS, STOCK)));
+        Files.delete(Paths.get("Orders.txt"));
+        Files.createDirectory(Paths.get("Orders.txt"));
+
+        Cart cart = new Cart();
+        cart.add(inventory.getProductById(1), 5);
+        cart.add(inventory.getProductById(2), 5);
+        check(inventory.reserveQuantity(2, 3), "Could not hold stock for the cart");
+        try {
+            inventory.checkout(cart, Map.of(2, 3), "customer");
+            check(false, "An order that could not be saved was placed");
+        } catch (IOException expected) {
+            // The customer is told the order failed
+        }
+        check(inventory.getProductById(1).getQuantity() == STOCK, "Stock taken by the failed checkout was kept");
+        check(inventory.getProductById(2).getQuantity() == STOCK - 3, "Stock held by the cart was returned");
+    }
+
+    /**
+     * Adding a quantity whose total price does not fit in the cart's subtotal must be refused
+     * without keeping the stock that was reserved for it.
+     */
+    private static void overflowingCartLine() throws Exception {
+        Product expensive = Product.withPriceCents(1, "Expensive", STOCK, Long.MAX_VALUE / 2);
+        InventorySystem inventory = new InventorySystem(TestSupport.writeBinaryCatalog(List.of(expensive)));
+        Customer customer = new Customer(new User("customer", "secret", "Customer", "Name", "Surname", "555-0100",
+                "customer@example.com"), inventory);
+
+        String result = customer.addToCart(1, 3);
+        check(!result.startsWith("Product added"), "An overflowing cart line was added: " + result);
+        check(inventory.getProductById(1).getQuantity() == STOCK, "Stock reserved for the refused line was kept");
+        check(customer.addToCart(1, 1).startsWith("Product added"), "A valid cart line was refused");
+        check(inventory.getProductById(1).getQuantity() == STOCK - 1, "Stock was not reserved for the cart");
+    }
+}
@@ -0,0 +1,81 @@
+package edu.acg.itc2205;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * The ColdStartBenchmark class compares how long a new process takes to open the same
+ * generated catalog from Products.txt, as Product objects or into a ColumnarProductStore,
+ * and from a memory-mapped binary file through BinaryProductStore, and then answer its
+ * first lookups. Every load runs in a fresh child JVM, so class loading and JIT warm-up
+ * are included as they are at startup; the files are in the page cache.
+ * Run it with {@code java edu.acg.itc2205.ColdStartBenchmark [products]}.
+ */
+public class ColdStartBenchmark {
+    private static final String BINARY_FILE = "Products.bin";
+    private static final int LOOKUPS = 1000;
+    private static final String[] BACKENDS = {"text", "columnar", "binary"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("generate")) {
+            generate(Integer.parseInt(args[1]));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("load")) {
+            load(args[1], Integer.parseInt(args[2]));
+            return;
+        }
+        String products = args.length > 0 ? args[0] : "1000000";
+        Path directory = Files.createTempDirectory("itc2205-coldstart");
+        TestSupport.runJava(directory, ColdStartBenchmark.class, "generate", products);
+
+        System.out.println(products + " products; Products.txt " + Files.size(directory.resolve("Products.txt")) / 1024
+                + " KB, " + BINARY_FILE + " " + Files.size(directory.resolve(BINARY_FILE)) / 1024 + " KB");
+        System.out.println("backend   open ms  first " + LOOKUPS + " lookups ms  heap MB");
+        for (String backend : BACKENDS) {
+            String output = TestSupport.runJava(directory, ColdStartBenchmark.class, "load", backend, products);
+            output.lines().filter(line -> line.startsWith("RESULT ")).forEach(line -> System.out.println(line.substring(7)));
+        }
+    }
+
+    private static void generate(int count) throws Exception {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter("Products.txt"))) {
+            for (int i = 1; i <= count; i++) {
+                bw.write(i + ", Product " + i + ", " + (i % 1000) + ", " + (100 + i % 10000) / 100.0);
+                bw.newLine();
+            }
+        }
+        new InventorySystem().exportToBinaryFile(BINARY_FILE);
+    }
+
+    private static void load(String backend, int count) throws Exception {
+        long start = System.nanoTime();
+        InventorySystem inventory;
+        switch (backend) {
+            case "text":
+                inventory = new InventorySystem();
+                break;
+            case "columnar":
+                inventory = new InventorySystem(true);
+                break;
+            default:
+                inventory = new InventorySystem(BINARY_FILE);
+                break;
+        }
+        long opened = System.nanoTime();
+        Random random = new Random(42);
+        for (int i = 0; i < LOOKUPS; i++) {
+            TestSupport.check(inventory.getProductById(1 + random.nextInt(count)) != null, "Product not found");
+        }
+        long looked = System.nanoTime();
+
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long heap = runtime.totalMemory() - runtime.freeMemory();
+        TestSupport.check(inventory.getProductById(count) != null, "Catalog not loaded");  // Keeps the inventory reachable
+        System.out.printf("RESULT %-8s %8.1f  %22.1f  %7.1f%n", backend, (opened - start) / 1e6, (looked - opened) / 1e6, heap / 1048576.0);
+    }
+}
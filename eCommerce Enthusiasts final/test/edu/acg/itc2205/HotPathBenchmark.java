@@ -0,0 +1,114 @@
+package edu.acg.itc2205;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * The HotPathBenchmark class times the inventory and authentication operations that the
+ * performance work targets, on generated datasets, and writes the results as JSON so that
+ * runs can be diffed. Every operation is run once to warm up and then timed.
+ * <p>
+ * The benchmark runs in a child JVM in a scratch directory, since the product and user
+ * files are relative to the working directory. The interactive loginUser cannot be timed
+ * without its menu, so the token login that checks the same password is timed instead.
+ * Run it with {@code java edu.acg.itc2205.HotPathBenchmark [products] [users] [output.json]}.
+ */
+public class HotPathBenchmark {
+    private static final String RESULT_FILE = "benchmark.json";
+    private static final int LOOKUPS = 2000000;
+    private static final int CHANGES_PER_SAVE = 100;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("run")) {
+            run(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+        String products = args.length > 0 ? args[0] : "100000";
+        String users = args.length > 1 ? args[1] : "20";
+        Path directory = Files.createTempDirectory("itc2205-benchmark");
+        TestSupport.runJava(directory, HotPathBenchmark.class, "run", products, users);
+
+        String json = Files.readString(directory.resolve(RESULT_FILE));
+        System.out.print(json);
+        if (args.length > 2) {
+            Files.writeString(Paths.get(args[2]), json);
+        }
+    }
+
+    /**
+     * The body of a timed operation.
+     */
+    private interface Operation {
+        void run(int i) throws Exception;
+    }
+
+    private static void run(int productCount, int userCount) throws Exception {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"java\": \"").append(System.getProperty("java.version"))
+                .append("\",\n  \"processors\": ").append(Runtime.getRuntime().availableProcessors())
+                .append(",\n  \"products\": ").append(productCount)
+                .append(",\n  \"users\": ").append(userCount)
+                .append(",\n  \"results\": [");
+
+        InventorySystem inventory = new InventorySystem();
+        time(json, "addProduct", productCount, i -> inventory.addProduct(
+                Product.withPriceCents(i + 1, "Product " + (i + 1), Integer.MAX_VALUE / 2, 100 + i)));
+        inventory.writeAllProductsToFile();
+
+        Random random = new Random(42);
+        time(json, "getProductById", LOOKUPS, i -> {
+            if (inventory.getProductById(1 + random.nextInt(productCount)) == null) {
+                throw new IllegalStateException("Product not found");
+            }
+        });
+        time(json, "subtractQuantity", LOOKUPS, i -> {
+            if (!inventory.subtractQuantity(1 + random.nextInt(productCount), 1)) {
+                throw new IllegalStateException("Stock not subtracted");
+            }
+        });
+        time(json, "writeProductsToFile", 50, i -> {
+            for (int j = 0; j < CHANGES_PER_SAVE; j++) {
+                inventory.updateProductQuantity(1 + random.nextInt(productCount), random.nextInt(1000));
+            }
+            inventory.writeProductsToFile();
+        });
+        time(json, "writeAllProductsToFile", 5, i -> inventory.writeAllProductsToFile());
+        time(json, "readProductsFromFile", 5, i -> new InventorySystem());
+
+        UserAuthentication userAuth = new UserAuthentication();
+        time(json, "registerUser", userCount, i -> userAuth.registerUser("user" + i, "password" + i,
+                "Customer", "User", String.valueOf(i), "555-0100", "user" + i + "@example.com"));
+        time(json, "login", userCount, i -> {
+            if (userAuth.login("user" + i, "password" + i) == null) {
+                throw new IllegalStateException("Login failed");
+            }
+        });
+        userAuth.close();
+
+        json.setLength(json.length() - 1);  // The comma after the last result
+        json.append("\n  ]\n}\n");
+        Files.writeString(Paths.get(RESULT_FILE), json);
+    }
+
+    /**
+     * Runs an operation once per index to warm up, then times the same number of runs and
+     * appends the result. Operations that create data use the index of the timed pass plus
+     * the count during warm-up, so registrations and additions never repeat.
+     */
+    private static void time(StringBuilder json, String name, int count, Operation operation) throws Exception {
+        boolean creates = name.equals("addProduct") || name.equals("registerUser");
+        int warmUpCount = creates ? Math.min(count, 1000) : count;
+        for (int i = 0; i < warmUpCount; i++) {
+            operation.run(creates ? count + i : i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            operation.run(i);
+        }
+        double nanosPerOperation = (System.nanoTime() - start) / (double) count;
+        json.append(String.format("%n    {\"benchmark\": \"%s\", \"operations\": %d, \"nsPerOperation\": %.1f},",
+                name, count, nanosPerOperation));
+    }
+}
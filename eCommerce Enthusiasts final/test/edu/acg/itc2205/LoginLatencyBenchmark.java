@@ -0,0 +1,70 @@
+package edu.acg.itc2205;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * The LoginLatencyBenchmark class compares the latency of a login that reads its own
+ * InventorySystem from Products.txt, as every login used to, with a login that shares the
+ * inventory loaded once by UserAuthentication. Both logins check the same password, so the
+ * difference is the cost of loading the catalog. It runs in a child JVM in a scratch
+ * directory with a generated Products.txt.
+ * Run it with {@code java edu.acg.itc2205.LoginLatencyBenchmark [products]}.
+ */
+public class LoginLatencyBenchmark {
+    private static final int LOGINS = 20;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("run")) {
+            run(Integer.parseInt(args[1]));
+            return;
+        }
+        String products = args.length > 0 ? args[0] : "500000";
+        String output = TestSupport.runJava(Files.createTempDirectory("itc2205-login"), LoginLatencyBenchmark.class, "run", products);
+        output.lines().filter(line -> line.startsWith("|") || line.startsWith("Products")).forEach(System.out::println);
+    }
+
+    private static void run(int productCount) throws Exception {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter("Products.txt"))) {
+            for (int i = 1; i <= productCount; i++) {
+                bw.write(i + ", Product " + i + ", " + (i % 1000) + ", " + (100 + i % 10000) / 100.0);
+                bw.newLine();
+            }
+        }
+        UserAuthentication userAuth = new UserAuthentication();
+        userAuth.registerUser("alice", "password", "Customer", "Alice", "Smith", "555-0100", "alice@example.com");
+
+        long[] before = new long[LOGINS];
+        for (int i = 0; i < LOGINS; i++) {
+            long start = System.nanoTime();
+            TestSupport.check(userAuth.authenticate("alice", "password") != null, "Login failed");
+            TestSupport.check(new InventorySystem().getProductById(productCount) != null, "Catalog not loaded");
+            before[i] = System.nanoTime() - start;
+        }
+
+        long firstStart = System.nanoTime();
+        userAuth.login("alice", "password");
+        long first = System.nanoTime() - firstStart;
+        long[] after = new long[LOGINS];
+        for (int i = 0; i < LOGINS; i++) {
+            long start = System.nanoTime();
+            UserSession session = userAuth.login("alice", "password");
+            TestSupport.check(session.getInventorySystem().getProductById(productCount) != null, "Catalog not loaded");
+            after[i] = System.nanoTime() - start;
+        }
+
+        System.out.println("Products.txt with " + productCount + " lines, " + LOGINS + " logins each");
+        System.out.println("| login                         | p50 ms  | max ms  |");
+        print("new inventory per login", before);
+        print("shared inventory", after);
+        System.out.printf("| shared inventory, first login | %7.1f |         |%n", first / 1e6);
+    }
+
+    private static void print(String name, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("| %-29s | %7.1f | %7.1f |%n", name, sorted[sorted.length / 2] / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,94 @@
+package edu.acg.itc2205;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static edu.acg.itc2205.TestSupport.check;
+
+/**
+ * The ParallelLoadTest class checks that parsing a product file in parallel chunks gives
+ * the same products, in the same order, and the same errors on the same line numbers as
+ * parsing it in one pass. The generated file has duplicate IDs, malformed and blank rows,
+ * a comment line and mixed line terminators, so that chunk boundaries fall on all of them.
+ * Run it with {@code java edu.acg.itc2205.ParallelLoadTest [rows]}.
+ */
+public class ParallelLoadTest {
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        File file = File.createTempFile("itc2205-products", ".txt");
+        file.deleteOnExit();
+        writeProductFile(file, rows);
+
+        for (boolean columnar : new boolean[] {false, true}) {
+            InventorySystem.ProductChunk serial;
+            try (Reader reader = new FileReader(file)) {
+                serial = InventorySystem.readProductChunk(reader, columnar);
+            }
+            List<InventorySystem.ProductChunk> chunks = InventorySystem.readProductChunksInParallel(file, columnar);
+            check(chunks.size() > 1, "The file was not split");
+
+            List<String> parallelProducts = new ArrayList<>();
+            List<String> parallelErrors = new ArrayList<>();
+            ColumnarProductStore.Builder parallelColumns = new ColumnarProductStore.Builder();
+            int lineOffset = 0;
+            for (InventorySystem.ProductChunk chunk : chunks) {
+                chunk.products.forEach(product -> parallelProducts.add(product.toString()));
+                if (columnar) {
+                    parallelColumns.append(chunk.columns);
+                }
+                for (int i = 0; i < chunk.errorLines.size(); i++) {
+                    parallelErrors.add((lineOffset + chunk.errorLines.get(i)) + ": " + chunk.errors.get(i));
+                }
+                lineOffset += chunk.lineCount;
+            }
+
+            List<String> serialProducts = new ArrayList<>();
+            serial.products.forEach(product -> serialProducts.add(product.toString()));
+            List<String> serialErrors = new ArrayList<>();
+            for (int i = 0; i < serial.errorLines.size(); i++) {
+                serialErrors.add(serial.errorLines.get(i) + ": " + serial.errors.get(i));
+            }
+            if (columnar) {
+                serialProducts.addAll(describe(serial.columns.build()));
+                parallelProducts.addAll(describe(parallelColumns.build()));
+            }
+
+            String mode = columnar ? "columnar" : "object";
+            check(!serialErrors.isEmpty(), "The malformed rows were not reported");
+            check(lineOffset == serial.lineCount, mode + " parse counted " + lineOffset + " lines, expected " + serial.lineCount);
+            check(parallelProducts.equals(serialProducts), mode + " parse gave different products");
+            check(parallelErrors.equals(serialErrors), mode + " parse gave different errors: " + parallelErrors + " vs " + serialErrors);
+        }
+        System.out.println("ParallelLoadTest passed");
+    }
+
+    private static List<String> describe(ColumnarProductStore store) {
+        List<String> products = new ArrayList<>();
+        for (int i = 0; i < store.size(); i++) {
+            products.add(store.productAt(i).toString());
+        }
+        return products;
+    }
+
+    private static void writeProductFile(File file, int rows) throws Exception {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            bw.write("# generation 3\n");
+            for (int i = 1; i <= rows; i++) {
+                if (i % 997 == 0) {
+                    bw.write(i + ", Product " + i + ", many, 1.00");  // Malformed quantity
+                } else if (i % 1009 == 0) {
+                    bw.write("   ");
+                } else {
+                    int id = i % 101 == 0 ? i - 100 : i;  // Some IDs repeat an earlier row
+                    bw.write(id + ", \"Product " + i + ", boxed\", " + (i % 500) + ", " + (i % 10000) / 100.0);
+                }
+                bw.write(i % 2 == 0 ? "\r\n" : "\n");
+            }
+        }
+    }
+}
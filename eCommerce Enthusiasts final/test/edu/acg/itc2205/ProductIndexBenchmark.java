@@ -0,0 +1,71 @@
+package edu.acg.itc2205;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The ProductIndexBenchmark class compares looking up products by ID in a ProductIndex
+ * with the linear scan over a {@code List<Product>} that it replaced, at 1k, 100k and 1M
+ * products. Run it with {@code java edu.acg.itc2205.ProductIndexBenchmark}.
+ */
+public class ProductIndexBenchmark {
+    private static final int[] CATALOG_SIZES = {1000, 100000, 1000000};
+    private static final long INDEX_LOOKUPS = 5000000;
+    private static final long SCANNED_PRODUCTS = 500000000;  // Products compared by the linear scans at each size
+
+    public static void main(String[] args) {
+        System.out.println("products  index ns/lookup  list scan ns/lookup");
+        for (int size : CATALOG_SIZES) {
+            ProductIndex index = new ProductIndex();
+            List<Product> list = new ArrayList<>(size);
+            for (int i = 1; i <= size; i++) {
+                Product product = Product.withPriceCents(i, "Product " + i, 10, 100);
+                index.putIfAbsent(product);
+                list.add(product);
+            }
+
+            long scanLookups = Math.max(100, SCANNED_PRODUCTS / size);
+            measureIndex(index, size, INDEX_LOOKUPS);  // Warm up
+            measureScan(list, size, scanLookups / 10);
+            double indexNanos = measureIndex(index, size, INDEX_LOOKUPS);
+            double scanNanos = measureScan(list, size, scanLookups);
+            System.out.printf("%8d  %15.1f  %19.1f%n", size, indexNanos, scanNanos);
+        }
+    }
+
+    private static double measureIndex(ProductIndex index, int size, long lookups) {
+        Random random = new Random(42);
+        long found = 0;
+        long start = System.nanoTime();
+        for (long i = 0; i < lookups; i++) {
+            if (index.get(1 + random.nextInt(size)) != null) {
+                found++;
+            }
+        }
+        return check(found, lookups, (System.nanoTime() - start) / (double) lookups);
+    }
+
+    private static double measureScan(List<Product> list, int size, long lookups) {
+        Random random = new Random(42);
+        long found = 0;
+        long start = System.nanoTime();
+        for (long i = 0; i < lookups; i++) {
+            int productId = 1 + random.nextInt(size);
+            for (Product product : list) {
+                if (product.getProductId() == productId) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        return check(found, lookups, (System.nanoTime() - start) / (double) lookups);
+    }
+
+    private static double check(long found, long lookups, double nanosPerLookup) {
+        if (found != lookups) {
+            throw new AssertionError("Found " + found + " of " + lookups + " products");
+        }
+        return nanosPerLookup;
+    }
+}
@@ -0,0 +1,195 @@
+package edu.acg.itc2205;
+
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import static edu.acg.itc2205.TestSupport.check;
+
+/**
+ * The ProductLogRecoveryTest class checks that saved stock changes survive the two crashes
+ * the product log must tolerate: a record torn in the middle of an append, and a crash
+ * during a full write after the new product file was moved into place but before the log
+ * was emptied. It also checks that changes to products of a columnar inventory, which are
+ * only kept in memory once changed, are saved. Every step runs in its own JVM in a scratch directory, since the product
+ * files are relative to the working directory.
+ * Run it with {@code java edu.acg.itc2205.ProductLogRecoveryTest}.
+ */
+public class ProductLogRecoveryTest {
+    private static final int PRODUCTS = 3;
+    private static final int STOCK = 100;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            runChild(args);
+            return;
+        }
+        tornRecord();
+        crashDuringFullWrite();
+        reloadKeepsUnsavedChanges();
+        failedSaveIsRetried();
+        columnarChangesAreSaved();
+        System.out.println("ProductLogRecoveryTest passed");
+    }
+
+    /**
+     * A record torn by a crash is left at the end of the log. The next save must start on a
+     * new line, or its record would fail its checksum and be lost.
+     */
+    private static void tornRecord() throws Exception {
+        Path directory = Files.createTempDirectory("itc2205-products");
+        run(directory, "create");
+        run(directory, "set", "1", "50");
+        try (FileOutputStream log = new FileOutputStream(directory.resolve("Products.log").toFile(), true)) {
+            log.write("3,\"Product 3\",7".getBytes(StandardCharsets.UTF_8));  // No checksum or line separator
+        }
+        run(directory, "set", "2", "60");
+        run(directory, "expect", "1", "50", "2", "60", "3", String.valueOf(STOCK));
+    }
+
+    /**
+     * The log of the old product file is put back after a full write, as a crash between
+     * moving the new file into place and emptying the log would leave it. Its records are
+     * older than the new file and must not be applied, and later saves must not be lost
+     * in a log that is ignored.
+     */
+    private static void crashDuringFullWrite() throws Exception {
+        Path directory = Files.createTempDirectory("itc2205-products");
+        Path log = directory.resolve("Products.log");
+        Path oldLog = directory.resolve("Products.log.old");
+        run(directory, "create");
+        run(directory, "set", "1", "50");
+        Files.copy(log, oldLog);
+        run(directory, "compact", "1", "70");
+        Files.move(oldLog, log, StandardCopyOption.REPLACE_EXISTING);
+
+        run(directory, "expect", "1", "70", "2", String.valueOf(STOCK));
+        run(directory, "set", "2", "80");
+        run(directory, "expect", "1", "70", "2", "80");
+    }
+
+    /**
+     * Another inventory saves a change while this one holds an unsaved change. Reloading
+     * must pick up the other change without discarding this one, which is saved next.
+     */
+    private static void reloadKeepsUnsavedChanges() throws Exception {
+        Path directory = Files.createTempDirectory("itc2205-products");
+        run(directory, "create");
+        run(directory, "reload");
+        run(directory, "expect", "1", "42", "2", "77", "3", String.valueOf(STOCK));
+    }
+
+    /**
+     * Saving into the log and rewriting the whole file both fail once. The changes they
+     * could not write must still be saved by the next successful save.
+     */
+    private static void failedSaveIsRetried() throws Exception {
+        Path directory = Files.createTempDirectory("itc2205-products");
+        run(directory, "create");
+        run(directory, "failsave");
+        run(directory, "expect", "1", "33", "2", "44", "3", String.valueOf(STOCK));
+    }
+
+    /**
+     * A columnar inventory reads unchanged products into temporary copies. A change, whether
+     * made through the inventory or directly on such a copy, must be kept until it is saved.
+     */
+    private static void columnarChangesAreSaved() throws Exception {
+        Path directory = Files.createTempDirectory("itc2205-products");
+        run(directory, "create");
+        run(directory, "columnar");
+        run(directory, "expect", "1", "21", "2", String.valueOf(STOCK - 5), "3", "9");
+    }
+
+    private static void run(Path directory, String... args) throws Exception {
+        TestSupport.runJava(directory, ProductLogRecoveryTest.class, args);
+    }
+
+    /**
+     * Runs one step in the child JVM: create the product file, set quantities and save the
+     * changes, set quantities and rewrite the whole file, reload over an unsaved change, save
+     * with failing writes, change and save a columnar inventory, or check quantities.
+     */
+    private static void runChild(String[] args) throws Exception {
+        InventorySystem inventory = new InventorySystem();
+        switch (args[0]) {
+            case "create":
+                for (Product product : TestSupport.products(PRODUCTS, STOCK)) {
+                    inventory.addProduct(product);
+                }
+                inventory.writeAllProductsToFile();
+                try {
+                    inventory.getProductById(1).setProductId(PRODUCTS + 1);
+                    check(false, "The ID of a product in the inventory was changed");
+                } catch (IllegalStateException expected) {
+                    // The index would no longer find the product under its new ID
+                }
+                break;
+            case "set":
+            case "compact":
+                for (int i = 1; i < args.length; i += 2) {
+                    check(inventory.updateProductQuantity(Integer.parseInt(args[i]), Integer.parseInt(args[i + 1])),
+                            "Product " + args[i] + " not found");
+                }
+                if (args[0].equals("set")) {
+                    inventory.writeProductsToFile();
+                } else {
+                    inventory.writeAllProductsToFile();
+                }
+                break;
+            case "reload":
+                check(inventory.updateProductQuantity(1, 42), "Product 1 not found");
+                Thread.sleep(50);  // Let the files get a later modification time
+                InventorySystem other = new InventorySystem();
+                other.updateProductQuantity(2, 77);
+                other.writeProductsToFile();
+                inventory.reloadIfModified();
+                check(inventory.getProductById(2).getQuantity() == 77, "The other inventory's change was not reloaded");
+                check(inventory.getProductById(1).getQuantity() == 42, "The unsaved change was lost by the reload");
+                inventory.writeProductsToFile();
+                break;
+            case "failsave":
+                // A directory in place of the log, then of the temporary file, makes the writes fail
+                Path log = Paths.get("Products.log");
+                Path aside = Paths.get("Products.log.aside");
+                inventory.updateProductQuantity(1, 33);
+                Files.move(log, aside);
+                Files.createDirectory(log);
+                inventory.writeProductsToFile();
+                Files.delete(log);
+                Files.move(aside, log);
+
+                Path tempFile = Paths.get("Products.txt.tmp");
+                inventory.updateProductQuantity(2, 44);
+                Files.createDirectory(tempFile);
+                inventory.writeAllProductsToFile();
+                Files.delete(tempFile);
+
+                inventory.writeProductsToFile();
+                break;
+            case "columnar":
+                InventorySystem columnar = new InventorySystem(true);
+                Product copy = columnar.getProductById(3);
+                check(columnar.getProductById(3) != copy, "An unchanged columnar product was kept in memory");
+                copy.setQuantity(9);
+                check(columnar.getProductById(3).getQuantity() == 9, "A change to a columnar product was lost");
+                check(columnar.updateProductQuantity(1, 21), "Product 1 not found");
+                check(columnar.reserveQuantity(2, 5), "Stock of product 2 was not reserved");
+                columnar.writeProductsToFile();
+                check(new InventorySystem(true).getProductById(2).getQuantity() == STOCK - 5, "The columnar log was not replayed");
+                break;
+            case "expect":
+                for (int i = 1; i < args.length; i += 2) {
+                    int quantity = inventory.getProductById(Integer.parseInt(args[i])).getQuantity();
+                    check(quantity == Integer.parseInt(args[i + 1]),
+                            "Product " + args[i] + " has quantity " + quantity + ", expected " + args[i + 1]);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown step " + args[0]);
+        }
+    }
+}
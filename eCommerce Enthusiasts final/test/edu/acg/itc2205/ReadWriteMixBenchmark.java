@@ -0,0 +1,81 @@
+package edu.acg.itc2205;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ReadWriteMixBenchmark class measures the throughput of one shared InventorySystem
+ * under a mix of 95% reads and 5% writes, from 1 to 64 threads. Reads are lookups by ID,
+ * except for 5% of all operations, which list one of the first pages of the catalog as
+ * the PRODUCTS command does; writes alternate between adding a new product and changing
+ * the quantity of an existing one. Throughput that holds up as threads are added means
+ * reads are not waiting for writes. It runs in a child JVM in a scratch directory with a generated
+ * Products.txt.
+ * Run it with {@code java edu.acg.itc2205.ReadWriteMixBenchmark [products]}.
+ */
+public class ReadWriteMixBenchmark {
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int OPERATIONS_PER_THREAD = 200000;
+    private static final int WRITE_PERCENT = 5;
+    private static final int PAGE_PERCENT = 5;  // Reads that list a page instead of looking up one product
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGES = 50;  // Pages browsed from the start of the catalog
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("run")) {
+            run(Integer.parseInt(args[1]));
+            return;
+        }
+        String products = args.length > 0 ? args[0] : "100000";
+        String output = TestSupport.runJava(Files.createTempDirectory("itc2205-mix"), ReadWriteMixBenchmark.class, "run", products);
+        output.lines().filter(line -> line.startsWith("RESULT ")).forEach(line -> System.out.println(line.substring(7)));
+    }
+
+    private static void run(int productCount) throws Exception {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter("Products.txt"))) {
+            for (int i = 1; i <= productCount; i++) {
+                bw.write(i + ", Product " + i + ", " + (i % 1000) + ", " + (100 + i % 10000) / 100.0);
+                bw.newLine();
+            }
+        }
+        InventorySystem inventory = new InventorySystem();
+        AtomicInteger nextId = new AtomicInteger(productCount);
+
+        mix(inventory, productCount, nextId, 4);  // Warm up
+        System.out.println("RESULT " + productCount + " products, " + OPERATIONS_PER_THREAD + " operations per thread, "
+                + WRITE_PERCENT + "% writes");
+        System.out.println("RESULT threads        ops/s  mean op latency ns");
+        for (int threads : THREAD_COUNTS) {
+            long start = System.nanoTime();
+            mix(inventory, productCount, nextId, threads);
+            long elapsed = System.nanoTime() - start;
+            long operations = (long) threads * OPERATIONS_PER_THREAD;
+            System.out.printf("RESULT %7d  %11.0f  %18.0f%n", threads, operations / (elapsed / 1e9),
+                    (double) elapsed * threads / operations);
+        }
+    }
+
+    private static void mix(InventorySystem inventory, int productCount, AtomicInteger nextId, int threads)
+            throws InterruptedException {
+        TestSupport.runThreads(threads, thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int productId = 1 + random.nextInt(productCount);
+                int roll = random.nextInt(100);
+                if (roll >= WRITE_PERCENT + PAGE_PERCENT) {
+                    TestSupport.check(inventory.getProductById(productId) != null, "Product " + productId + " not found");
+                } else if (roll >= WRITE_PERCENT) {
+                    TestSupport.check(inventory.getProductPage(PAGE_SIZE * random.nextInt(PAGES), PAGE_SIZE).size() <= PAGE_SIZE, "Page too long");
+                } else if (roll % 2 == 0) {
+                    int newId = nextId.incrementAndGet();
+                    inventory.addProduct(Product.withPriceCents(newId, "Product " + newId, 10, 100));
+                } else {
+                    inventory.updateProductQuantity(productId, random.nextInt(1000));
+                }
+            }
+        });
+    }
+}
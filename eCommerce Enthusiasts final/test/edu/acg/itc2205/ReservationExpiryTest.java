@@ -0,0 +1,94 @@
+package edu.acg.itc2205;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static edu.acg.itc2205.TestSupport.check;
+
+/**
+ * The ReservationExpiryTest class checks that expired reservations return their stock to
+ * the inventory, that a reservation settles only once, and that released or committed
+ * reservations stop waiting in the expiry queue.
+ * Run it with {@code java edu.acg.itc2205.ReservationExpiryTest}.
+ */
+public class ReservationExpiryTest {
+    private static final long TTL_MILLIS = 200;
+    private static final int PRODUCTS = 8;
+    private static final int STOCK = 100000;
+
+    public static void main(String[] args) throws Exception {
+        expiryReturnsStock();
+        settledReservationsLeaveQueue();
+        System.out.println("ReservationExpiryTest passed");
+    }
+
+    /**
+     * Reservations spread over several products expire together. All their stock must come
+     * back, and a reservation that expired can no longer be committed or released.
+     */
+    private static void expiryReturnsStock() throws Exception {
+        InventorySystem inventory = new InventorySystem(TestSupport.writeBinaryCatalog(TestSupport.products(PRODUCTS, STOCK)));
+        ReservationScheduler scheduler = new ReservationScheduler(inventory, TTL_MILLIS);
+        List<Reservation> reservations = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Reservation reservation = scheduler.reserve(1 + i % PRODUCTS, 3);
+            check(reservation != null, "Reservation " + i + " was refused");
+            reservations.add(reservation);
+        }
+        check(inventory.getProductById(1).getQuantity() == STOCK - 3 * 5000 / PRODUCTS, "Stock was not taken");
+
+        long deadline = System.currentTimeMillis() + TTL_MILLIS + 10000;
+        while (!allInStock(inventory) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        check(scheduler.getPendingCount() == 0, "Expired reservations are still queued");
+        for (int productId = 1; productId <= PRODUCTS; productId++) {
+            int quantity = inventory.getProductById(productId).getQuantity();
+            check(quantity == STOCK, "Product " + productId + " has " + quantity + " after expiry, expected " + STOCK);
+        }
+        check(!scheduler.commit(reservations.get(0)), "An expired reservation was committed");
+        check(!scheduler.release(reservations.get(1)), "An expired reservation was released twice");
+        check(inventory.getProductById(2).getQuantity() == STOCK, "Stock was returned twice");
+    }
+
+    private static boolean allInStock(InventorySystem inventory) {
+        for (int productId = 1; productId <= PRODUCTS; productId++) {
+            if (inventory.getProductById(productId).getQuantity() != STOCK) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reservations that are released or committed long before their expiry must not pile up
+     * in the queue, or a busy shop would keep every settled reservation for the whole TTL.
+     * Compacting the queue must keep the reservations that are still held.
+     */
+    private static void settledReservationsLeaveQueue() throws Exception {
+        InventorySystem inventory = new InventorySystem(TestSupport.writeBinaryCatalog(TestSupport.products(PRODUCTS, STOCK)));
+        ReservationScheduler scheduler = new ReservationScheduler(inventory, 60 * 60 * 1000);
+        List<Reservation> held = new ArrayList<>();
+        for (int i = 0; i < 11000; i++) {
+            Reservation reservation = scheduler.reserve(1 + i % PRODUCTS, 1);
+            if (i % 11 == 10) {
+                held.add(reservation);
+                continue;
+            }
+            boolean settled = i % 2 == 0 ? scheduler.release(reservation) : scheduler.commit(reservation);
+            check(settled, "Reservation " + i + " was not settled");
+        }
+        int queued = scheduler.getPendingCount();
+        check(queued >= held.size(), "Only " + queued + " of " + held.size() + " held reservations are queued");
+        check(queued <= held.size() + ReservationScheduler.COMPACTION_THRESHOLD,
+                (queued - held.size()) + " settled reservations are still queued");
+        for (Reservation reservation : held) {
+            check(scheduler.release(reservation), "A held reservation was lost");
+        }
+        long total = 0;
+        for (int productId = 1; productId <= PRODUCTS; productId++) {
+            total += inventory.getProductById(productId).getQuantity();
+        }
+        check(total == (long) PRODUCTS * STOCK - 5000, "The inventory holds " + total + " after 5000 commits");
+    }
+}
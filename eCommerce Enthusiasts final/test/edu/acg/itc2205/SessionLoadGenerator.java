@@ -0,0 +1,171 @@
+package edu.acg.itc2205;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * The SessionLoadGenerator class opens 10k sessions on a SessionServer and keeps all of
+ * them logged in while it sends a mix of PRODUCTS, PRICE, ADD, CART and REMOVE commands,
+ * then reports the p50 and p99 round-trip latency of the commands.
+ * <p>
+ * The server runs in a child JVM in a scratch directory with a generated Products.txt;
+ * the connections are spread over a fixed number of client threads in this JVM, each
+ * sending one command at a time. The server's user store accepts every login without
+ * checking a password, since a password hash takes tens of milliseconds and 10k of them
+ * would measure only the hasher; LOGIN still opens a real session.
+ * Run it with {@code java edu.acg.itc2205.SessionLoadGenerator [sessions] [clientThreads]}.
+ */
+public class SessionLoadGenerator {
+    private static final int PRODUCTS = 10000;
+    private static final int ROUNDS = 4;  // Times each session sends the command mix
+    private static final int COMMANDS_PER_ROUND = 5;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("serve")) {
+            serve(Integer.parseInt(args[1]));
+            return;
+        }
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int clientThreads = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Process server = TestSupport.startJava(Files.createTempDirectory("itc2205-sessions"), SessionLoadGenerator.class,
+                "serve", String.valueOf(port));
+        try {
+            awaitServer(server);
+            run(port, sessions, clientThreads);
+        } finally {
+            server.destroyForcibly();
+        }
+    }
+
+    /**
+     * Waits until the server child reports that it is listening, then keeps draining its
+     * output so it never blocks on a full pipe.
+     */
+    private static void awaitServer(Process server) throws IOException {
+        BufferedReader output = new BufferedReader(new InputStreamReader(server.getInputStream()));
+        String line;
+        while ((line = output.readLine()) != null && !line.startsWith("Session server listening")) {
+            System.out.println("server: " + line);
+        }
+        TestSupport.check(line != null, "The session server exited before listening");
+        Thread drain = new Thread(() -> {
+            try {
+                while (output.readLine() != null) {
+                    // Discard
+                }
+            } catch (IOException e) {
+                // The server was stopped
+            }
+        });
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    private static void run(int port, int sessions, int clientThreads) throws Exception {
+        Socket[] sockets = new Socket[sessions];
+        BufferedReader[] readers = new BufferedReader[sessions];
+        PrintStream[] writers = new PrintStream[sessions];
+        long[][] latencies = new long[clientThreads][];
+
+        long loginStart = System.nanoTime();
+        TestSupport.runThreads(clientThreads, thread -> {
+            for (int i = thread; i < sessions; i += clientThreads) {
+                sockets[i] = new Socket("localhost", port);
+                readers[i] = new BufferedReader(new InputStreamReader(sockets[i].getInputStream(), StandardCharsets.UTF_8));
+                writers[i] = new PrintStream(sockets[i].getOutputStream(), false, StandardCharsets.UTF_8);
+                String reply = send(readers[i], writers[i], "LOGIN user" + i + " password");
+                TestSupport.check(reply.contains("Token: "), "Login " + i + " failed: " + reply);
+            }
+        });
+        double loginSeconds = (System.nanoTime() - loginStart) / 1e9;
+
+        long start = System.nanoTime();
+        TestSupport.runThreads(clientThreads, thread -> {
+            int owned = (sessions - thread + clientThreads - 1) / clientThreads;
+            long[] nanos = new long[owned * ROUNDS * COMMANDS_PER_ROUND];
+            int count = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int step = 0; step < COMMANDS_PER_ROUND; step++) {
+                    for (int i = thread; i < sessions; i += clientThreads) {
+                        long sent = System.nanoTime();
+                        String reply = send(readers[i], writers[i], command(i, round, step));
+                        nanos[count++] = System.nanoTime() - sent;
+                        TestSupport.check(!reply.startsWith("ERROR") && !reply.startsWith("Please log in"),
+                                "Session " + i + " failed: " + reply);
+                    }
+                }
+            }
+            latencies[thread] = nanos;
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%d sessions logged in in %.1f s, %d client threads%n", sessions, loginSeconds, clientThreads);
+        System.out.printf("%d commands in %.1f s: %.0f commands/s%n", all.length, seconds, all.length / seconds);
+        System.out.printf("p50 %.2f ms  p99 %.2f ms  max %.2f ms%n", all[all.length / 2] / 1e6,
+                all[(int) (all.length * 0.99)] / 1e6, all[all.length - 1] / 1e6);
+    }
+
+    // The command a session sends at one step of a round
+    private static String command(int session, int round, int step) {
+        int productId = 1 + (session * 31 + round) % PRODUCTS;
+        switch (step) {
+            case 0:
+                return "PRODUCTS " + (1 + session % 50);
+            case 1:
+                return "PRICE 10 20";
+            case 2:
+                return "ADD " + productId + " 1";
+            case 3:
+                return "CART";
+            default:
+                return "REMOVE " + productId;
+        }
+    }
+
+    // Sends a command and reads its response up to the END line
+    private static String send(BufferedReader reader, PrintStream writer, String command) throws IOException {
+        writer.println(command);
+        writer.flush();
+        StringBuilder reply = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null && !line.equals("END")) {
+            reply.append(line).append('\n');
+        }
+        TestSupport.check(line != null, "The server closed the connection after " + command);
+        return reply.toString();
+    }
+
+    private static void serve(int port) throws Exception {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter("Products.txt"))) {
+            for (int i = 1; i <= PRODUCTS; i++) {
+                bw.write(i + ", Product " + i + ", 1000000, " + (100 + i % 10000) / 100.0);
+                bw.newLine();
+            }
+        }
+        UserAuthentication userAuth = new UserAuthentication() {
+            @Override
+            public User authenticate(String username, String password) {
+                return new User(username, password, "Customer", "Load", "Test", "555-0100", username + "@example.com");
+            }
+        };
+        new SessionServer(userAuth).serve(port);
+    }
+}
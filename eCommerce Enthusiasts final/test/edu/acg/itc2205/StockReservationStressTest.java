@@ -0,0 +1,86 @@
+package edu.acg.itc2205;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static edu.acg.itc2205.TestSupport.check;
+
+/**
+ * The StockReservationStressTest class checks that lock-free stock reservation neither
+ * oversells nor loses updates when 64 or more threads share one InventorySystem, and
+ * reports the throughput. Run it with {@code java edu.acg.itc2205.StockReservationStressTest [threads]}.
+ */
+public class StockReservationStressTest {
+    private static final int PRODUCTS = 16;
+    private static final int STOCK = 100000;
+    private static final int OPERATIONS_PER_THREAD = 200000;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        check(threads >= 2, "At least two threads are needed");
+        noOverselling(threads);
+        noLostUpdates(threads);
+        System.out.println("StockReservationStressTest passed");
+    }
+
+    /**
+     * Every thread takes one unit at a time until the stock runs out. Exactly the initial
+     * stock must have been handed out, and the quantity must end at zero.
+     */
+    private static void noOverselling(int threads) throws Exception {
+        InventorySystem inventory = new InventorySystem(TestSupport.writeBinaryCatalog(TestSupport.products(1, STOCK)));
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger negativeSeen = new AtomicInteger();
+
+        TestSupport.runThreads(threads, thread -> {
+            while (inventory.reserveQuantity(1, 1)) {
+                reserved.incrementAndGet();
+                if (inventory.getProductById(1).getQuantity() < 0) {
+                    negativeSeen.incrementAndGet();
+                }
+            }
+        });
+
+        check(negativeSeen.get() == 0, "Stock went negative " + negativeSeen.get() + " times");
+        check(reserved.get() == STOCK, "Reserved " + reserved.get() + " units of a stock of " + STOCK);
+        check(inventory.getProductById(1).getQuantity() == 0, "Stock left: " + inventory.getProductById(1).getQuantity());
+    }
+
+    /**
+     * Threads reserve and release random amounts of random products, releasing only what
+     * they reserved. Each product must end with its initial stock minus what is still held.
+     */
+    private static void noLostUpdates(int threads) throws Exception {
+        InventorySystem inventory = new InventorySystem(TestSupport.writeBinaryCatalog(TestSupport.products(PRODUCTS, STOCK)));
+        AtomicLongArray stillHeld = new AtomicLongArray(PRODUCTS + 1);
+
+        long start = System.nanoTime();
+        TestSupport.runThreads(threads, thread -> {
+            Random random = new Random(thread);
+            int[] held = new int[PRODUCTS + 1];
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int productId = 1 + random.nextInt(PRODUCTS);
+                int amount = 1 + random.nextInt(5);
+                if (held[productId] >= amount && random.nextBoolean()) {
+                    check(inventory.releaseQuantity(productId, amount), "Release failed");
+                    held[productId] -= amount;
+                } else if (inventory.reserveQuantity(productId, amount)) {
+                    held[productId] += amount;
+                }
+            }
+            for (int productId = 1; productId <= PRODUCTS; productId++) {
+                stillHeld.addAndGet(productId, held[productId]);
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (int productId = 1; productId <= PRODUCTS; productId++) {
+            int quantity = inventory.getProductById(productId).getQuantity();
+            check(quantity >= 0, "Product " + productId + " has negative stock " + quantity);
+            check(quantity == STOCK - stillHeld.get(productId), "Product " + productId + " has stock " + quantity
+                    + " but " + (STOCK - stillHeld.get(productId)) + " was expected");
+        }
+        System.out.printf("%d threads: %.0f reserve/release ops/sec%n", threads, threads * (double) OPERATIONS_PER_THREAD / seconds);
+    }
+}
@@ -0,0 +1,146 @@
+package edu.acg.itc2205;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The TestSupport class holds the helpers shared by the test harnesses. The project has
+ * no test framework, so every test is a class with a main method that throws an
+ * AssertionError on the first failed check and exits normally when all checks pass.
+ */
+public class TestSupport {
+    private TestSupport() {
+    }
+
+    /**
+     * Fails the test if a condition does not hold.
+     *
+     * @param condition The condition that must hold.
+     * @param message   The failure message.
+     */
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * Writes products to a new binary product file in a temporary directory, so a test can
+     * open an InventorySystem without touching the product files of the working directory.
+     *
+     * @param products The products to write.
+     * @return The absolute name of the binary product file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static String writeBinaryCatalog(Collection<Product> products) throws IOException {
+        Path directory = Files.createTempDirectory("itc2205-catalog");
+        String fileName = directory.resolve("Products.bin").toString();
+        BinaryProductStore.write(products, fileName);
+        return fileName;
+    }
+
+    /**
+     * Creates products with IDs from 1 to count, all with the same quantity and price.
+     *
+     * @param count    The number of products.
+     * @param quantity The quantity of each product.
+     * @return The products.
+     */
+    public static List<Product> products(int count, int quantity) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            products.add(Product.withPriceCents(i, "Product " + i, quantity, 100 + i));
+        }
+        return products;
+    }
+
+    /**
+     * Starts a child JVM running the main method of a class in the given working directory,
+     * with the class path of this JVM. The product and user files are relative to the working
+     * directory, so this lets a test work on its own files and kill the process at will.
+     *
+     * @param directory The working directory of the child.
+     * @param mainClass The class whose main method is run.
+     * @param args      The arguments of the main method.
+     * @return The started process, with standard error merged into standard output.
+     * @throws IOException If the process cannot be started.
+     */
+    public static Process startJava(Path directory, Class<?> mainClass, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass.getName());
+        command.addAll(List.of(args));
+        return new ProcessBuilder(command).directory(directory.toFile()).redirectErrorStream(true).start();
+    }
+
+    /**
+     * Runs a child JVM to completion and fails the test if it exits with an error.
+     *
+     * @param directory The working directory of the child.
+     * @param mainClass The class whose main method is run.
+     * @param args      The arguments of the main method.
+     * @return The output of the child.
+     * @throws IOException          If the process cannot be started.
+     * @throws InterruptedException If interrupted while waiting for the process.
+     */
+    public static String runJava(Path directory, Class<?> mainClass, String... args) throws IOException, InterruptedException {
+        Process process = startJava(directory, mainClass, args);
+        String output = new String(process.getInputStream().readAllBytes());
+        int exitCode = process.waitFor();
+        check(exitCode == 0, mainClass.getSimpleName() + " " + String.join(" ", args) + " exited with " + exitCode + ":\n" + output);
+        return output;
+    }
+
+    /**
+     * The work done by each thread started by {@link #runThreads(int, ThreadBody)}.
+     */
+    public interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+
+    /**
+     * Starts threads that run the same body at once, waits for all of them, and fails the
+     * test if any of them failed.
+     *
+     * @param threads The number of threads.
+     * @param body    The work of each thread, given the thread's number.
+     * @throws InterruptedException If interrupted while waiting for the threads.
+     */
+    public static void runThreads(int threads, ThreadBody body) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        Throwable[] failure = new Throwable[1];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                    body.run(thread);
+                } catch (Throwable e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        ready.await();
+        go.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure[0] != null) {
+            throw new AssertionError("A worker thread failed", failure[0]);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package edu.acg.itc2205;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The TokenizerBenchmark class compares the CsvTokenizer product loader with the
+ * {@code line.split(",")}, {@code trim()} and {@code parseInt}/{@code parseDouble} loader
+ * it replaced, on the same generated rows held in memory, so no disk reads are timed.
+ * For each loader it reports rows parsed per second and the bytes allocated per row,
+ * which include the Product objects both loaders create.
+ * Run it with {@code java edu.acg.itc2205.TokenizerBenchmark [rows]}.
+ */
+public class TokenizerBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        StringBuilder text = new StringBuilder(rows * 40);
+        for (int i = 1; i <= rows; i++) {
+            text.append(i).append(", Product ").append(i).append(", ").append(i % 1000).append(", ")
+                    .append((100 + i % 10000) / 100.0).append('\n');
+        }
+        String catalog = text.toString();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        System.out.println(rows + " rows");
+        System.out.println("loader           rows/s  bytes/row");
+        for (int round = 0; round <= ROUNDS; round++) {
+            boolean report = round == ROUNDS;  // The earlier rounds warm up both loaders
+            measure("split", catalog, rows, threads, report);
+            measure("tokenizer", catalog, rows, threads, report);
+            measure("columnar", catalog, rows, threads, report);
+        }
+    }
+
+    private static void measure(String loader, String catalog, int rows, com.sun.management.ThreadMXBean threads,
+                                boolean report) throws IOException {
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        int parsed;
+        switch (loader) {
+            case "split":
+                parsed = loadWithSplit(catalog).size();
+                break;
+            case "tokenizer":
+                parsed = InventorySystem.readProductChunk(new StringReader(catalog), false).products.size();
+                break;
+            default:
+                parsed = InventorySystem.readProductChunk(new StringReader(catalog), true).columns.build().size();
+                break;
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+        TestSupport.check(parsed == rows, loader + " parsed " + parsed + " of " + rows + " rows");
+        if (report) {
+            System.out.printf("%-10s %12.0f  %9.1f%n", loader, rows / (elapsed / 1e9), allocated / (double) rows);
+        }
+    }
+
+    // The loader InventorySystem used before CsvTokenizer
+    private static List<Product> loadWithSplit(String catalog) throws IOException {
+        List<Product> products = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new StringReader(catalog))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                int id = Integer.parseInt(parts[0].trim());
+                String name = parts[1].trim();
+                int quantity = Integer.parseInt(parts[2].trim());
+                double price = Double.parseDouble(parts[3].trim());
+
+                products.add(new Product(id, name, quantity, price));
+            }
+        }
+        return products;
+    }
+}
@@ -0,0 +1,111 @@
+package edu.acg.itc2205;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static edu.acg.itc2205.TestSupport.check;
+
+/**
+ * The UserLogRecoveryTest class checks that no acknowledged registration is lost when the
+ * process is killed while registering users. A child JVM registers users until it is
+ * killed; a torn record is then left at the end of the registration log, as a kill in the
+ * middle of a write would; a second child registers one more user; and a third checks
+ * that every user whose registration was reported as successful can log in.
+ * Run it with {@code java edu.acg.itc2205.UserLogRecoveryTest}.
+ */
+public class UserLogRecoveryTest {
+    private static final String ACKNOWLEDGEMENT = "User registered successfully. Welcome, ";
+    private static final int ACKNOWLEDGEMENTS_BEFORE_KILL = 20;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            runChild(args);
+            return;
+        }
+
+        Path directory = Files.createTempDirectory("itc2205-users");
+        Files.createFile(directory.resolve("users.txt"));
+
+        List<String> acknowledged = registerUntilKilled(directory);
+        check(acknowledged.size() >= ACKNOWLEDGEMENTS_BEFORE_KILL, "Only " + acknowledged.size() + " registrations were acknowledged");
+
+        try (FileOutputStream log = new FileOutputStream(directory.resolve("users.log").toFile(), true)) {
+            log.write("torn,pbkdf2$120000$AAAA".getBytes(StandardCharsets.UTF_8));  // No line separator
+        }
+
+        String output = TestSupport.runJava(directory, UserLogRecoveryTest.class, "register", "carol");
+        check(output.contains(ACKNOWLEDGEMENT + "carol!"), "Carol was not registered:\n" + output);
+        acknowledged.add("carol");
+
+        List<String> verifyArgs = new ArrayList<>();
+        verifyArgs.add("verify");
+        verifyArgs.addAll(acknowledged);
+        TestSupport.runJava(directory, UserLogRecoveryTest.class, verifyArgs.toArray(new String[0]));
+        System.out.println("UserLogRecoveryTest passed (" + acknowledged.size() + " acknowledged registrations recovered)");
+    }
+
+    /**
+     * Starts a child that registers users without end, and kills it once enough
+     * registrations have been acknowledged.
+     *
+     * @return The usernames whose registration was acknowledged before the kill.
+     */
+    private static List<String> registerUntilKilled(Path directory) throws IOException, InterruptedException {
+        Process process = TestSupport.startJava(directory, UserLogRecoveryTest.class, "register");
+        List<String> acknowledged = new ArrayList<>();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.startsWith(ACKNOWLEDGEMENT)) {
+                    acknowledged.add(line.substring(ACKNOWLEDGEMENT.length(), line.length() - 1));
+                    if (acknowledged.size() == ACKNOWLEDGEMENTS_BEFORE_KILL) {
+                        process.destroyForcibly();
+                        break;
+                    }
+                }
+            }
+        }
+        check(process.waitFor(1, TimeUnit.MINUTES), "The registering process did not stop");
+        return acknowledged;
+    }
+
+    /**
+     * Runs in the child JVM. Neither mode closes the UserAuthentication, so the registration
+     * log is never compacted into users.txt and recovery has to replay it.
+     */
+    private static void runChild(String[] args) {
+        UserAuthentication userAuth = new UserAuthentication();
+        switch (args[0]) {
+            case "register":
+                if (args.length > 1) {
+                    register(userAuth, args[1]);
+                } else {
+                    for (int i = 0; ; i++) {
+                        register(userAuth, "user" + i);
+                    }
+                }
+                break;
+            case "verify":
+                for (int i = 1; i < args.length; i++) {
+                    check(userAuth.authenticate(args[i], "password-" + args[i]) != null,
+                            "Acknowledged user " + args[i] + " cannot log in after recovery");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode " + args[0]);
+        }
+    }
+
+    private static void register(UserAuthentication userAuth, String username) {
+        // The name is the username, so the welcome message identifies the registration
+        userAuth.registerUser(username, "password-" + username, "Customer", username, "Test", "555-0100", username + "@example.com");
+    }
+}
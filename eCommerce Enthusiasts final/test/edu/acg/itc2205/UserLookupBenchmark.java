@@ -0,0 +1,92 @@
+package edu.acg.itc2205;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The UserLookupBenchmark class compares the login throughput of UserAuthentication, which
+ * finds users in a hash index, with the linear scan over a {@code List<User>} that it
+ * replaced, at 1k, 100k and 1M users. The logins use a wrong password against users stored
+ * with legacy plain-text passwords, so they measure the lookup and the comparison; the
+ * password hashing of a successful login costs the same at every size and is left out.
+ * Each size runs in a child JVM in a scratch directory with a generated users.txt.
+ * Run it with {@code java edu.acg.itc2205.UserLookupBenchmark}.
+ */
+public class UserLookupBenchmark {
+    private static final int[] USER_COUNTS = {1000, 100000, 1000000};
+    private static final int INDEX_LOGINS = 2000000;
+    private static final long SCANNED_USERS = 200000000;  // Users compared by the linear scans at each size
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("run")) {
+            run(Integer.parseInt(args[1]));
+            return;
+        }
+        System.out.println("   users  index logins/s  list scan logins/s");
+        for (int count : USER_COUNTS) {
+            String output = TestSupport.runJava(Files.createTempDirectory("itc2205-users"), UserLookupBenchmark.class,
+                    "run", String.valueOf(count));
+            output.lines().filter(line -> line.startsWith("RESULT ")).forEach(line -> System.out.println(line.substring(7)));
+        }
+    }
+
+    private static void run(int count) throws Exception {
+        List<User> list = new ArrayList<>(count);
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter("users.txt"))) {
+            for (int i = 0; i < count; i++) {
+                User user = new User("user" + i, "pw" + i, "Customer", "Name" + i, "Surname", "555-0100", "user" + i + "@example.com");
+                list.add(user);
+                bw.write(user.getUsername() + "," + user.getPassword() + ",Customer,Name" + i + ",Surname,555-0100,user" + i + "@example.com");
+                bw.newLine();
+            }
+        }
+        UserAuthentication userAuth = new UserAuthentication();
+        String[] usernames = new String[4096];
+        Random random = new Random(42);
+        for (int i = 0; i < usernames.length; i++) {
+            usernames[i] = "user" + random.nextInt(count);
+        }
+
+        long scanLogins = Math.max(100, SCANNED_USERS / count);
+        measureIndex(userAuth, usernames, INDEX_LOGINS / 4);  // Warm up
+        measureScan(list, usernames, scanLogins / 10);
+        double indexRate = measureIndex(userAuth, usernames, INDEX_LOGINS);
+        double scanRate = measureScan(list, usernames, scanLogins);
+        System.out.printf("RESULT %8d  %15.0f  %18.0f%n", count, indexRate, scanRate);
+    }
+
+    private static double measureIndex(UserAuthentication userAuth, String[] usernames, long logins) {
+        long start = System.nanoTime();
+        for (long i = 0; i < logins; i++) {
+            if (userAuth.authenticate(usernames[(int) (i & (usernames.length - 1))], "wrong") != null) {
+                throw new IllegalStateException("A wrong password was accepted");
+            }
+        }
+        return logins / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static double measureScan(List<User> list, String[] usernames, long logins) {
+        long found = 0;
+        long start = System.nanoTime();
+        for (long i = 0; i < logins; i++) {
+            String username = usernames[(int) (i & (usernames.length - 1))];
+            for (User user : list) {
+                if (user.getUsername().equals(username)) {
+                    if (!user.getPassword().equals("wrong")) {
+                        found++;
+                    }
+                    break;
+                }
+            }
+        }
+        double rate = logins / ((System.nanoTime() - start) / 1e9);
+        if (found != logins) {
+            throw new IllegalStateException("The scan missed users");
+        }
+        return rate;
+    }
+}